@@ -0,0 +1,107 @@
+package benchmark;
+
+import dungeon.BatchGenerator;
+import dungeon.BatchReport;
+import dungeon.DungeonKey;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Measures how many dungeons a {@link BatchGenerator} builds per second, to size the machines
+ * that pre-generate dungeons. Every call builds a batch of {@value #COUNT} dungeons with the
+ * player placed and throws them away, and the score is given per dungeon.
+ *
+ * <p>The batches are seeded, one batch after the other, so a run builds the same dungeons
+ * every time. The executor is either a pool of one platform thread per processor or a
+ * virtual thread per dungeon, with twice as many dungeons in flight as there are processors.
+ *
+ * @author anush
+ *
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class BatchBenchmark {
+
+  static final int COUNT = 200;
+
+  private static final int TREASURE = 20;
+
+  /**
+   * The parameters of the dungeons and the executor that builds them.
+   */
+  @State(Scope.Thread)
+  public static class Batch {
+
+    @Param({"10", "50", "100"})
+    public int size;
+
+    @Param({"false", "true"})
+    public boolean wrapping;
+
+    @Param({"0", "5"})
+    public int interconnectivity;
+
+    @Param({"platform", "virtual"})
+    public String executor;
+
+    ExecutorService threads;
+    BatchGenerator generator;
+    private long seed;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+      int processors = Runtime.getRuntime().availableProcessors();
+      if ("virtual".equals(this.executor)) {
+        this.threads = BatchGenerator.virtualExecutor();
+      } else {
+        this.threads = BatchGenerator.platformExecutor(processors);
+      }
+      this.generator = new BatchGenerator(this.threads, 2 * processors);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+      this.threads.shutdown();
+    }
+
+    /**
+     * Gets the key of the first dungeon of the next batch.
+     */
+    DungeonKey nextKey() {
+      DungeonKey key = new DungeonKey(this.size, this.size, this.wrapping,
+          this.interconnectivity, TREASURE, this.seed);
+      this.seed += COUNT;
+      return key;
+    }
+  }
+
+  @Benchmark
+  @OperationsPerInvocation(COUNT)
+  public BatchReport generate(Batch batch, Blackhole blackhole) throws InterruptedException {
+    LongAdder caves = new LongAdder();
+    BatchReport report = batch.generator.generate(batch.nextKey(), COUNT,
+        (key, d) -> caves.add(d.getCaveList().size()));
+    blackhole.consume(caves.sum());
+    return report;
+  }
+}
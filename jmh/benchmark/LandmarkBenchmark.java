@@ -0,0 +1,136 @@
+package benchmark;
+
+import dungeon.DistanceEngine;
+import dungeon.DungeonTopology;
+import dungeon.IGraph;
+import dungeon.LandmarkOracle;
+import dungeon.SeededRandom;
+import dungeon.StreamingDungeonGenerator;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Compares a {@link LandmarkOracle} with plain breadth first search on one large dungeon:
+ * the time to build the oracle, and how long a pair of bounds, an exact query and a breadth
+ * first search take. The dungeon is streamed from a seed, so a run measures the same dungeon
+ * and the same pairs of nodes every time.
+ *
+ * <p>The queries walk through a fixed list of random pairs, one pair per call. Every exact
+ * answer of the oracle is checked against the search when the trial is set up. The memory of
+ * the oracle is {@link LandmarkOracle#getBytes()}; run with the GC profiler of the jmh
+ * profile to see what building it allocates.
+ *
+ * @author anush
+ *
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class LandmarkBenchmark {
+
+  private static final int PAIRS = 256;
+
+  /**
+   * One dungeon without treasure, its oracle and the pairs of nodes that are queried.
+   */
+  @State(Scope.Thread)
+  public static class Graph {
+
+    @Param({"100", "500", "1000"})
+    public int size;
+
+    @Param({"false", "true"})
+    public boolean wrapping;
+
+    @Param({"0", "15"})
+    public int interconnectivity;
+
+    @Param({"4", "16"})
+    public int landmarks;
+
+    IGraph graph;
+    LandmarkOracle oracle;
+    DistanceEngine engine;
+    int[] from;
+    int[] to;
+    private int next;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+      ByteArrayOutputStream out = new ByteArrayOutputStream();
+      new StreamingDungeonGenerator(this.size, this.size, this.wrapping,
+          this.interconnectivity, 0, new SeededRandom(0)).generate(out);
+      this.graph = DungeonTopology.wrap(ByteBuffer.wrap(out.toByteArray())).getGraph();
+      this.oracle = new LandmarkOracle(this.graph, this.landmarks);
+      this.engine = new DistanceEngine(this.graph);
+
+      SplittableRandom random = new SplittableRandom(0);
+      this.from = new int[PAIRS];
+      this.to = new int[PAIRS];
+      for (int q = 0; q < PAIRS; q++) {
+        this.from[q] = random.nextInt(this.graph.getVertices());
+        this.to[q] = random.nextInt(this.graph.getVertices());
+      }
+      for (int q = 0; q < 16; q++) {
+        if (this.oracle.distance(this.from[q], this.to[q])
+            != this.engine.distancesFrom(this.from[q])[this.to[q]]) {
+          throw new IllegalStateException("Wrong distance from " + this.from[q] + " to "
+              + this.to[q]);
+        }
+      }
+    }
+
+    /**
+     * Moves on to the next pair of nodes.
+     */
+    int nextPair() {
+      this.next = (this.next + 1) % PAIRS;
+      return this.next;
+    }
+  }
+
+  @Benchmark
+  @BenchmarkMode(Mode.SingleShotTime)
+  @OutputTimeUnit(TimeUnit.MILLISECONDS)
+  @Warmup(iterations = 2)
+  @Measurement(iterations = 5)
+  public LandmarkOracle buildOracle(Graph g) {
+    return new LandmarkOracle(g.graph, g.landmarks);
+  }
+
+  @Benchmark
+  public int bounds(Graph g) {
+    int q = g.nextPair();
+    return g.oracle.lowerBound(g.from[q], g.to[q]) + g.oracle.upperBound(g.from[q], g.to[q]);
+  }
+
+  @Benchmark
+  public int exactDistance(Graph g) {
+    int q = g.nextPair();
+    return g.oracle.distance(g.from[q], g.to[q]);
+  }
+
+  @Benchmark
+  public int breadthFirstSearch(Graph g) {
+    int q = g.nextPair();
+    return g.engine.distancesFrom(g.from[q])[g.to[q]];
+  }
+}
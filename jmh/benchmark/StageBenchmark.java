@@ -0,0 +1,365 @@
+package benchmark;
+
+import dungeon.Dungeon;
+import dungeon.IDungeon;
+import dungeon.SeededRandom;
+import dungeon.Stage;
+import dungeon.StartEndSelection;
+
+import java.lang.management.ManagementFactory;
+import java.util.SplittableRandom;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.BenchmarkParams;
+
+/**
+ * Measures every stage of building and playing a dungeon that {@code Driver} runs, over
+ * grids from 5x5 to 1000x1000, wrapping and not, with several interconnectivity values.
+ * Each benchmark is named after the {@link Stage} it measures.
+ *
+ * <p>A stage changes the dungeon it runs on, so every call gets a fresh dungeon that has been
+ * taken through all earlier stages in its setup, and only the stage itself is timed. The
+ * dungeons are seeded, one seed after the other, so a run measures the same dungeons every
+ * time. {@code minFivePath} lists every pair of caves that are far enough apart, which grows
+ * with the square of the number of caves, so it is only measured up to 100x100. Player moves
+ * are measured on one finished dungeon per trial, each move in a random direction the player
+ * is offered.
+ *
+ * <p>Run with the JSON result format and the GC profiler, as set up in the jmh profile of
+ * the build. The GC profiler counts everything allocated during an iteration, which for the
+ * building stages includes making the fresh dungeon of every call. The bytes the stage alone
+ * allocates are read from the allocation counter of the thread around the call and reported
+ * as {@code allocatedBytes} over {@code stageCalls}. For player moves there is no setup per
+ * call, so the {@code gc.alloc.rate.norm} of the profiler is the allocation of a move.
+ *
+ * @author anush
+ *
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class StageBenchmark {
+
+  private static final int TREASURE = 20;
+
+  /**
+   * The sizes every stage is measured on. The largest interconnectivity still fits a 5x5
+   * dungeon that does not wrap, which has 16 paths outside its spanning tree.
+   */
+  @State(Scope.Thread)
+  public static class Grid {
+
+    @Param({"5", "10", "50", "100", "500", "1000"})
+    public int size;
+
+    @Param({"false", "true"})
+    public boolean wrapping;
+
+    @Param({"0", "5", "15"})
+    public int interconnectivity;
+
+    IDungeon dungeon;
+    private long seed;
+
+    @Setup(Level.Invocation)
+    public void setUp(BenchmarkParams params) {
+      this.dungeon = prepare(stageOf(params), this.size, this.wrapping, this.interconnectivity,
+          this.seed++);
+    }
+  }
+
+  /**
+   * The sizes of a wrapping dungeon, for the stage that only a wrapping dungeon runs.
+   */
+  @State(Scope.Thread)
+  public static class WrappingGrid {
+
+    @Param({"5", "10", "50", "100", "500", "1000"})
+    public int size;
+
+    @Param({"0", "5", "15"})
+    public int interconnectivity;
+
+    IDungeon dungeon;
+    private long seed;
+
+    @Setup(Level.Invocation)
+    public void setUp(BenchmarkParams params) {
+      this.dungeon = prepare(stageOf(params), this.size, true, this.interconnectivity,
+          this.seed++);
+    }
+  }
+
+  /**
+   * The sizes the full list of start and end pairs can be made for.
+   */
+  @State(Scope.Thread)
+  public static class SmallGrid {
+
+    @Param({"5", "10", "50", "100"})
+    public int size;
+
+    @Param({"false", "true"})
+    public boolean wrapping;
+
+    @Param({"0", "5", "15"})
+    public int interconnectivity;
+
+    IDungeon dungeon;
+    private long seed;
+
+    @Setup(Level.Invocation)
+    public void setUp(BenchmarkParams params) {
+      this.dungeon = prepare(stageOf(params), this.size, this.wrapping, this.interconnectivity,
+          this.seed++);
+    }
+  }
+
+  /**
+   * A finished dungeon with the player in it. The player keeps walking for the whole trial.
+   */
+  @State(Scope.Thread)
+  public static class Game {
+
+    @Param({"5", "10", "50", "100", "500", "1000"})
+    public int size;
+
+    @Param({"false", "true"})
+    public boolean wrapping;
+
+    @Param({"0", "5", "15"})
+    public int interconnectivity;
+
+    IDungeon dungeon;
+    SplittableRandom moves;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+      this.dungeon = prepare(Stage.PLAYER_MOVE, this.size, this.wrapping,
+          this.interconnectivity, 0);
+      this.moves = new SplittableRandom(0);
+    }
+  }
+
+  /**
+   * The bytes a stage allocates on the calling thread, leaving out the setup of the call.
+   * JMH adds these counters up over the iterations, so the bytes of one call are
+   * {@code allocatedBytes} divided by {@code stageCalls}.
+   */
+  @State(Scope.Thread)
+  @AuxCounters(AuxCounters.Type.EVENTS)
+  public static class Allocation {
+
+    private static final com.sun.management.ThreadMXBean THREADS =
+        (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+
+    public long allocatedBytes;
+    public long stageCalls;
+
+    @Setup(Level.Iteration)
+    public void reset() {
+      this.allocatedBytes = 0;
+      this.stageCalls = 0;
+    }
+
+    long start() {
+      return THREADS.getCurrentThreadAllocatedBytes();
+    }
+
+    void stop(long start) {
+      this.allocatedBytes += THREADS.getCurrentThreadAllocatedBytes() - start;
+      this.stageCalls++;
+    }
+  }
+
+  /**
+   * Finds the stage a benchmark measures from its name.
+   */
+  static Stage stageOf(BenchmarkParams params) {
+    String benchmark = params.getBenchmark();
+    String name = benchmark.substring(benchmark.lastIndexOf('.') + 1);
+    for (Stage stage : Stage.values()) {
+      if (stage.getStage().equals(name)) {
+        return stage;
+      }
+    }
+    throw new IllegalArgumentException("No stage is named " + name);
+  }
+
+  /**
+   * Makes a dungeon and runs every stage the driver runs before the given one.
+   */
+  static IDungeon prepare(Stage stage, int size, boolean wrapping, int interconnectivity,
+      long seed) {
+    IDungeon d = new Dungeon(size, size, wrapping, interconnectivity, TREASURE,
+        new SeededRandom(seed), StartEndSelection.SAMPLED);
+    for (Stage before : Stage.values()) {
+      if (before == stage) {
+        break;
+      }
+      switch (before) {
+        case CREATE_DUNGEON:
+          d.createDungeon();
+          break;
+        case POTENTIAL_PATHS:
+          d.potentialPaths();
+          break;
+        case WRAPPING_POTENTIAL_PATH:
+          if (wrapping) {
+            d.wrappingPotentialPath();
+          }
+          break;
+        case KRUSKAL_ALGORITHMS:
+          if (stage != Stage.PARALLEL_KRUSKAL_ALGORITHMS) {
+            d.kruskalAlgorithms();
+          }
+          break;
+        case ADD_INTERCONNECTIVITY:
+          d.addInterconnectivity();
+          break;
+        case UPDATE_DIRECTIONS:
+          d.updateDirections();
+          break;
+        case SET_LOCATION_TYPE:
+          d.setLocationType();
+          break;
+        case SET_TREASURES:
+          d.setTreasures();
+          break;
+        case ADJLIST:
+          d.adjlist();
+          break;
+        case SET_PLAYER_START_AND_END:
+          if (stage == Stage.PLAYER_MOVE) {
+            d.setStartEnd();
+            d.setPlayerStartAndEnd();
+          }
+          break;
+        default:
+          // Other stages only read the dungeon.
+          break;
+      }
+    }
+    return d;
+  }
+
+  @Benchmark
+  public void createDungeon(Grid grid, Allocation allocation) {
+    long start = allocation.start();
+    grid.dungeon.createDungeon();
+    allocation.stop(start);
+  }
+
+  @Benchmark
+  public void potentialPaths(Grid grid, Allocation allocation) {
+    long start = allocation.start();
+    grid.dungeon.potentialPaths();
+    allocation.stop(start);
+  }
+
+  @Benchmark
+  public void wrappingPotentialPath(WrappingGrid grid, Allocation allocation) {
+    long start = allocation.start();
+    grid.dungeon.wrappingPotentialPath();
+    allocation.stop(start);
+  }
+
+  @Benchmark
+  public void kruskalAlgorithms(Grid grid, Allocation allocation) {
+    long start = allocation.start();
+    grid.dungeon.kruskalAlgorithms();
+    allocation.stop(start);
+  }
+
+  @Benchmark
+  public void parallelKruskalAlgorithms(Grid grid, Allocation allocation) {
+    long start = allocation.start();
+    grid.dungeon.parallelKruskalAlgorithms(ForkJoinPool.commonPool());
+    allocation.stop(start);
+  }
+
+  @Benchmark
+  public void addInterconnectivity(Grid grid, Allocation allocation) {
+    long start = allocation.start();
+    grid.dungeon.addInterconnectivity();
+    allocation.stop(start);
+  }
+
+  @Benchmark
+  public void updateDirections(Grid grid, Allocation allocation) {
+    long start = allocation.start();
+    grid.dungeon.updateDirections();
+    allocation.stop(start);
+  }
+
+  @Benchmark
+  public void setLocationType(Grid grid, Allocation allocation) {
+    long start = allocation.start();
+    grid.dungeon.setLocationType();
+    allocation.stop(start);
+  }
+
+  @Benchmark
+  public void setTreasures(Grid grid, Allocation allocation) {
+    long start = allocation.start();
+    grid.dungeon.setTreasures();
+    allocation.stop(start);
+  }
+
+  @Benchmark
+  public void adjlist(Grid grid, Allocation allocation) {
+    long start = allocation.start();
+    grid.dungeon.adjlist();
+    allocation.stop(start);
+  }
+
+  @Benchmark
+  public String setPlayerStartAndEnd(Grid grid, Allocation allocation) {
+    long start = allocation.start();
+    grid.dungeon.setStartEnd();
+    String placed = grid.dungeon.setPlayerStartAndEnd();
+    allocation.stop(start);
+    return placed;
+  }
+
+  @Benchmark
+  public void minFivePath(SmallGrid grid, Allocation allocation) {
+    long start = allocation.start();
+    grid.dungeon.minFivePath();
+    allocation.stop(start);
+  }
+
+  @Benchmark
+  public String displayDungeon(Grid grid, Allocation allocation) {
+    long start = allocation.start();
+    String map = grid.dungeon.displayDungeon();
+    allocation.stop(start);
+    return map;
+  }
+
+  /**
+   * Moves the player one step through {@link IDungeon#playerMovement(int)}, which calls
+   * {@code Player.move}. The direction is picked among the ones the node offers, so every
+   * call is a move.
+   */
+  @Benchmark
+  public String playerMove(Game game) {
+    int offered = game.dungeon.getPlayer().getCurrent().possibleDirections().size();
+    return game.dungeon.playerMovement(1 + game.moves.nextInt(offered));
+  }
+}
@@ -4,10 +4,19 @@ import static java.lang.Boolean.parseBoolean;
 import static java.lang.Integer.parseInt;
 
 import dungeon.Dungeon;
+import dungeon.DungeonKey;
 import dungeon.IDungeon;
+import dungeon.MoveLog;
 import dungeon.RandomGenerator;
 import dungeon.RandomInterface;
+import dungeon.SeededRandom;
+import dungeon.StartEndSelection;
+import dungeon.Viewport;
 
+import java.io.ByteArrayOutputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
 import java.util.Scanner;
 
 /**
@@ -22,9 +31,12 @@ public class Driver {
   /**
    * This is a method that allows us to run our dungeon game.
    * 
-   * @param args used to pass dungeon parameters.
+   * @param args used to pass dungeon parameters. An optional sixth argument is a seed that
+   *        builds the same dungeon every time. An optional seventh argument is a file the
+   *        game is recorded to, so it can be played again with {@link Replay}.
+   * @throws IOException If the game cannot be recorded.
    */
-  public static void main(String[] args) {
+  public static void main(String[] args) throws IOException {
     
     if (args.length < 5 ) {
       throw new IllegalArgumentException("\n Invalid number of arguments are passed. "
@@ -40,10 +52,11 @@ public class Driver {
       throw new IllegalArgumentException("Invalid agruments please enter the correct inputs");
     }
     
-    RandomInterface r = new RandomGenerator();
+    RandomInterface r = args.length > 5 ? new SeededRandom(Long.parseLong(args[5]))
+        : new RandomGenerator();
 
     IDungeon d = new Dungeon(parseInt(args[0]), parseInt(args[1]), parseBoolean(args[2]),
-        parseInt(args[3]), parseInt(args[4]), r);
+        parseInt(args[3]), parseInt(args[4]), r, StartEndSelection.SAMPLED);
     //IDungeon d = new Dungeon(5, 5, true, 4, 50, r);
     // System.out.println(d.getRows());
     // System.out.println(d.getCols());
@@ -77,21 +90,38 @@ public class Driver {
  
     d.setStartEnd();
 
-    System.out.println(d.displayDungeon());
+    d.displayDungeon(System.out);
+    System.out.println();
     //System.out.println(d.printMatrix());
 
     System.out.println(d.setPlayerStartAndEnd());
+    Viewport view = d.viewport(5, 7);
     Scanner sc = new Scanner(System.in);
+    ByteArrayOutputStream moves = new ByteArrayOutputStream();
 
-    do {
-      System.out.println(d.possibleMovements());
-      int move = sc.nextInt();
-      System.out.println(d.playerMovement(move));
-      //System.out.println(d.playerDetails());
-    } 
-    while (d.hasEnded());
-    System.out.println(d.gameEnded());
-    sc.close();
+    try {
+      do {
+        System.out.println(d.possibleMovements());
+        int move = sc.nextInt();
+        moves.write(move == (byte) move ? move : 0);
+        System.out.println(d.playerMovement(move));
+        view.draw(System.out);
+        //System.out.println(d.playerDetails());
+      } 
+      while (d.hasEnded());
+      System.out.println(d.gameEnded());
+    } finally {
+      sc.close();
+      // A game that was cut short is recorded too.
+      if (args.length > 6) {
+        DungeonKey key = new DungeonKey(parseInt(args[0]), parseInt(args[1]),
+            parseBoolean(args[2]), parseInt(args[3]), parseInt(args[4]),
+            Long.parseLong(args[5]));
+        try (OutputStream out = new FileOutputStream(args[6])) {
+          new MoveLog(key, moves.toByteArray()).writeTo(out);
+        }
+      }
+    }
   }
 
 }
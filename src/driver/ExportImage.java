@@ -0,0 +1,71 @@
+package driver;
+
+import dungeon.BatchGenerator;
+import dungeon.ImageExporter;
+import dungeon.MappedDungeon;
+import dungeon.SeededRandom;
+
+import java.io.File;
+import java.util.concurrent.ExecutorService;
+
+/**
+ * Draws a saved dungeon file as a PNG image, for example one written by
+ * {@code StreamingDungeonGenerator} or {@code IDungeon.writeTo}.
+ *
+ * <p>Options are given as key=value pairs after the two files: {@code cell=n} is the size of
+ * a node in pixels if the image fits, {@code budget=n} the most memory in megabytes the image
+ * may take and {@code threads=n} the number of threads drawing it.
+ *
+ * @author anush
+ *
+ */
+public class ExportImage {
+
+  /**
+   * Draws a dungeon file.
+   *
+   * @param args The dungeon file, the image file and options as key=value pairs.
+   * @throws Exception If a file cannot be read or written or drawing is interrupted.
+   */
+  public static void main(String[] args) throws Exception {
+    if (args.length < 2) {
+      throw new IllegalArgumentException(
+          "\n Please enter a dungeon file, an image file and any options.\n");
+    }
+    int cell = 8;
+    long budget = ImageExporter.DEFAULT_BUDGET;
+    int threads = Runtime.getRuntime().availableProcessors();
+    for (int i = 2; i < args.length; i++) {
+      String[] pair = args[i].split("=", 2);
+      if (pair.length != 2) {
+        throw new IllegalArgumentException("Options must look like key=value: " + args[i]);
+      }
+      switch (pair[0]) {
+        case "cell":
+          cell = Integer.parseInt(pair[1]);
+          break;
+        case "budget":
+          budget = Long.parseLong(pair[1]) << 20;
+          break;
+        case "threads":
+          threads = Integer.parseInt(pair[1]);
+          break;
+        default:
+          throw new IllegalArgumentException("Unknown option: " + pair[0]);
+      }
+    }
+
+    MappedDungeon d = MappedDungeon.open(new File(args[0]), new SeededRandom(0));
+    ExecutorService executor = BatchGenerator.platformExecutor(threads);
+    try {
+      ImageExporter exporter = new ImageExporter(executor, threads, budget);
+      long start = System.nanoTime();
+      exporter.write(d, cell, new File(args[1]));
+      System.out.println(String.format("%dx%d dungeon drawn with %d pixel nodes in %.3f s",
+          d.getRows(), d.getCols(), exporter.cellSizeFor(d.getRows(), d.getCols(), cell),
+          (System.nanoTime() - start) / 1e9));
+    } finally {
+      executor.shutdown();
+    }
+  }
+}
@@ -0,0 +1,65 @@
+package driver;
+
+import dungeon.BatchGenerator;
+import dungeon.ReplayEngine;
+import dungeon.ReplayResult;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+
+/**
+ * Replays recorded games without a console and prints the final state of each, one line per
+ * game starting with its digest. Logs are written by {@link Driver} when it is given a log
+ * file.
+ *
+ * @author anush
+ *
+ */
+public class Replay {
+
+  /**
+   * Replays move logs.
+   *
+   * @param args An optional threads=n option followed by move log files or directories of
+   *        them.
+   * @throws Exception If a log cannot be read or the replay is interrupted.
+   */
+  public static void main(String[] args) throws Exception {
+    int threads = Runtime.getRuntime().availableProcessors();
+    List<File> files = new ArrayList<>();
+    for (String arg : args) {
+      if (arg.startsWith("threads=")) {
+        threads = Integer.parseInt(arg.substring("threads=".length()));
+        continue;
+      }
+      File file = new File(arg);
+      File[] children = file.listFiles(File::isFile);
+      if (children == null) {
+        files.add(file);
+      } else {
+        Arrays.sort(children);
+        files.addAll(Arrays.asList(children));
+      }
+    }
+    if (files.isEmpty()) {
+      throw new IllegalArgumentException("\n Please enter the move logs to replay.\n");
+    }
+
+    ExecutorService executor = BatchGenerator.platformExecutor(threads);
+    try {
+      long start = System.nanoTime();
+      List<ReplayResult> results = new ReplayEngine(executor, 4 * threads).replayFiles(files);
+      long elapsed = System.nanoTime() - start;
+      for (int i = 0; i < results.size(); i++) {
+        System.out.println(results.get(i) + " " + files.get(i));
+      }
+      System.out.println(String.format("%d games replayed in %.3f s, %.1f games per second",
+          results.size(), elapsed / 1e9, results.size() * 1e9 / elapsed));
+    } finally {
+      executor.shutdown();
+    }
+  }
+}
@@ -0,0 +1,705 @@
+package dungeon;
+
+import java.io.CharArrayWriter;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+
+/**
+ * The parts of a dungeon that do not depend on how its grid is stored. This covers picking
+ * the start and end caves, moving the player and printing the dungeon. An implementation only
+ * has to give access to its nodes and to the paths between them.
+ *
+ * @author anush
+ *
+ */
+public abstract class AbstractDungeon implements IDungeon {
+
+  protected static final int MIN_START_END_DISTANCE = 5;
+  private static final int SAMPLE_ATTEMPTS_PER_CAVE = 64;
+  private static final int CELLS_PER_RANGE = 1 << 16;
+
+  protected final int rows;
+  protected final int cols;
+  protected final boolean isWrapping;
+  protected final RandomInterface r;
+  private final StartEndSelection selection;
+  private final List<IPath> startEnd;
+  private boolean startEndComputed;
+  private int startEndPath;
+  private IPath chosenPath;
+  private IPlayer player;
+  private PathFinder pathFinder;
+  private TreeDistanceIndex treeIndex;
+  private boolean treeIndexChecked;
+  private long searchVisits;
+
+  /**
+   * Sets up the shared state of a dungeon.
+   *
+   * @param rows Number of rows we want in a dungeon.
+   * @param cols Number of columns we want in a dungeon.
+   * @param isWrapping A boolean value that decides whether the dungeon is wrapping or non-wrapping.
+   * @param r This is a parameter for randomness. It is used for implementation and testing.
+   * @param selection How the start and end caves of the player are picked.
+   */
+  protected AbstractDungeon(int rows, int cols, boolean isWrapping, RandomInterface r,
+      StartEndSelection selection) {
+    if (selection == null) {
+      throw new IllegalArgumentException("Enter valid inputs");
+    }
+    this.rows = rows;
+    this.cols = cols;
+    this.isWrapping = isWrapping;
+    this.r = r;
+    this.selection = selection;
+    this.startEnd = new ArrayList<>();
+  }
+
+  /**
+   * Gets the node with the given unique identifier.
+   *
+   * @param nid The node id, counted row by row from the top left corner.
+   * @return The node at that position.
+   */
+  protected abstract INode getNode(int nid);
+
+  /**
+   * Checks whether the node with the given id is a cave.
+   *
+   * @param nid The node id.
+   * @return True if the node is a cave.
+   */
+  protected abstract boolean isCave(int nid);
+
+  /**
+   * Gets the paths of the finished dungeon as a graph.
+   *
+   * @return The connections between the nodes.
+   */
+  protected abstract IGraph getGraph();
+
+  /**
+   * Gets every node of the dungeon ordered by node id. This is handed to the player.
+   *
+   * @return A list of all nodes.
+   */
+  protected abstract List<INode> getAllNodes();
+
+  /**
+   * Gets the packed form of a node as described in {@link CellMask}. This is used to write the
+   * dungeon to a file.
+   *
+   * @param nid The node id.
+   * @return The packed node as an unsigned value.
+   */
+  protected int packedCell(int nid) {
+    INode node = getNode(nid);
+    int cell = 0;
+    if (node.getNorth()) {
+      cell |= CellMask.NORTH;
+    }
+    if (node.getSouth()) {
+      cell |= CellMask.SOUTH;
+    }
+    if (node.getEast()) {
+      cell |= CellMask.EAST;
+    }
+    if (node.getWest()) {
+      cell |= CellMask.WEST;
+    }
+    if (node.getType() == LocationType.CAVE) {
+      cell |= CellMask.CAVE;
+      for (Treasure t : node.getTreasures()) {
+        cell |= CellMask.of(t);
+      }
+    }
+    return cell;
+  }
+
+  /**
+   * Gets a start and end that were decided before the dungeon was built, for example ones
+   * read back from a file. Dungeons that pick them at random return null.
+   *
+   * @return The fixed path from start to end, or null if there is none.
+   */
+  protected IPath fixedStartEnd() {
+    return null;
+  }
+
+  /**
+   * Gets the number of extra paths the dungeon was asked for, as reported with its flight
+   * recorder events.
+   *
+   * @return The interconnectivity, or -1 if it is not known.
+   */
+  protected int getInterconnectivity() {
+    return -1;
+  }
+
+  /**
+   * Starts timing a building step for a {@link GenerationStageEvent}. Building steps start
+   * with this and end with {@link #commitStage(GenerationStageEvent)}; while no flight
+   * recording is running both do nothing.
+   *
+   * @param stage The step.
+   * @return The event to fill in.
+   */
+  GenerationStageEvent beginStage(Stage stage) {
+    GenerationStageEvent event = new GenerationStageEvent(stage);
+    event.begin();
+    return event;
+  }
+
+  /**
+   * Ends a building step and records it with the size of the dungeon if a flight recording
+   * is running.
+   *
+   * @param event The event of the step.
+   */
+  void commitStage(GenerationStageEvent event) {
+    if (event.shouldCommit()) {
+      event.rows = this.rows;
+      event.cols = this.cols;
+      event.wrapping = this.isWrapping;
+      event.interconnectivity = getInterconnectivity();
+      event.commit();
+    }
+  }
+
+  /**
+   * Gets the start and end caves of the player, or the ones the dungeon came with if the
+   * player has not entered it yet.
+   *
+   * @return The path, or null if the dungeon has none yet.
+   */
+  IPath getStartEndPath() {
+    return chosenPath != null ? chosenPath : fixedStartEnd();
+  }
+
+  @Override
+  public int getRows() {
+    return this.rows;
+  }
+
+  @Override
+  public int getCols() {
+    return this.cols;
+  }
+
+  @Override
+  public boolean getIsWrapping() {
+    return this.isWrapping;
+  }
+
+  // ------------Setting up list of edges with path length 5 or more------------
+
+  @Override
+  public void minFivePath() {
+    GenerationStageEvent event = beginStage(Stage.MIN_FIVE_PATH);
+    this.startEnd.clear();
+    this.startEndComputed = true;
+
+    int[] caves = caveIds();
+    IGraph graph = getGraph();
+    if (KHopIndex.fits(graph.getVertices(), caves.length)) {
+      KHopIndex index = new KHopIndex(graph, caves, MIN_START_END_DISTANCE);
+      for (int k = 0; k < caves.length; k++) {
+        for (int j = 0; j < caves.length; j++) {
+          if (index.isAtLeast(caves[k], j)) {
+            startEnd.add(new Path(getNode(caves[k]), getNode(caves[j])));
+          }
+        }
+      }
+      // The index looks at every node once for each step of the distance.
+      event.nodesVisited = (long) graph.getVertices() * Math.max(0, MIN_START_END_DISTANCE - 1);
+    } else {
+      DistanceEngine engine = new DistanceEngine(graph);
+      for (int k = 0; k < caves.length; k++) {
+        int[] distance = engine.distancesFrom(caves[k]);
+        for (int j = 0; j < caves.length; j++) {
+          if (distance[caves[j]] >= MIN_START_END_DISTANCE) {
+            startEnd.add(new Path(getNode(caves[k]), getNode(caves[j])));
+          }
+        }
+      }
+      event.nodesVisited = engine.getVisited();
+    }
+    this.searchVisits += event.nodesVisited;
+    commitStage(event);
+  }
+
+  @Override
+  public void setStartEnd() {
+    if (this.selection == StartEndSelection.EXHAUSTIVE) {
+      this.minFivePath();
+    }
+  }
+
+  private int[] caveIds() {
+    int vertices = this.rows * this.cols;
+    int count = 0;
+    for (int i = 0; i < vertices; i++) {
+      if (isCave(i)) {
+        count++;
+      }
+    }
+    int[] caves = new int[count];
+    count = 0;
+    for (int i = 0; i < vertices; i++) {
+      if (isCave(i)) {
+        caves[count++] = i;
+      }
+    }
+    return caves;
+  }
+
+  /**
+   * Draws random ordered cave pairs until one is found whose caves are far enough apart.
+   * Every qualifying pair is equally likely, just like picking from the full list. If no pair
+   * turns up after a bounded number of draws we fall back to the full list.
+   */
+  private IPath samplePath() {
+    int[] caves = caveIds();
+
+    // Building a distance index costs far more than the few bounded searches a draw needs,
+    // so one is only used if the hints already built it.
+    TreeDistanceIndex index = this.treeIndex;
+    DistanceEngine engine = index == null ? new DistanceEngine(getGraph()) : null;
+    long attempts = (long) SAMPLE_ATTEMPTS_PER_CAVE * caves.length;
+    for (long i = 0; i < attempts; i++) {
+      int start = caves[r.getInt(caves.length)];
+      int end = caves[r.getInt(caves.length)];
+      if (index == null ? engine.isAtLeast(start, end, MIN_START_END_DISTANCE)
+          : index.distance(start, end) >= MIN_START_END_DISTANCE) {
+        this.searchVisits += engine == null ? 0 : engine.getVisited();
+        this.startEndPath = -1;
+        return new Path(getNode(start), getNode(end));
+      }
+    }
+
+    this.searchVisits += engine == null ? 0 : engine.getVisited();
+    this.minFivePath();
+    this.startEndPath = r.getInt(this.startEnd.size());
+    return this.startEnd.get(this.startEndPath);
+  }
+
+  // -------------------------Moving the player--------------------------------------
+
+  @Override
+  public String setPlayerStartAndEnd() {
+    GenerationStageEvent event = beginStage(Stage.SET_PLAYER_START_AND_END);
+    long visitsBefore = this.searchVisits;
+    // Collections.shuffle(this.startEnd);
+    IPath fixed = fixedStartEnd();
+    if (fixed != null) {
+      this.startEndPath = -1;
+      chosenPath = fixed;
+    } else if (this.selection == StartEndSelection.SAMPLED) {
+      chosenPath = samplePath();
+    } else {
+      startEndPath = r.getInt(this.startEnd.size());
+      chosenPath = this.startEnd.get(startEndPath);
+    }
+    StringBuilder sb = new StringBuilder();
+
+    sb.append("MY START LOCATION: " + chosenPath.getStart().getNid() + "\n");
+    sb.append("MY END LOCATION: " + chosenPath.getEnd().getNid() + "\n");
+    // sb.append("Directions Available: " + this.startEnd.get(0).getStart().directionsOfNode());
+
+    player = new Player(chosenPath.getStart(), this.rows, this.cols, this.isWrapping,
+        getInterconnectivity());
+
+    if (chosenPath.getStart().getTreasures().size() > 0) {
+      player.setPickedTreasures(chosenPath.getStart().getTreasures());
+      sb.append(chosenPath.getStart().getTreasures().toString());
+    }
+    player.setAllNodes(this.getAllNodes());
+    event.nodesVisited = this.searchVisits - visitsBefore;
+    commitStage(event);
+    return sb.toString();
+  }
+
+  @Override
+  public List<IPath> getStartEnd() {
+    if (!this.startEndComputed) {
+      this.minFivePath();
+    }
+    return new ArrayList<>(this.startEnd);
+  }
+
+  @Override
+  public int getStartEndpath() {
+    if (this.startEndPath == -1 && this.chosenPath != null) {
+      List<IPath> paths = this.getStartEnd();
+      for (int i = 0; i < paths.size(); i++) {
+        if (paths.get(i).getStart().getNid() == chosenPath.getStart().getNid()
+            && paths.get(i).getEnd().getNid() == chosenPath.getEnd().getNid()) {
+          this.startEndPath = i;
+          break;
+        }
+      }
+    }
+    return this.startEndPath;
+  }
+
+  @Override
+  public String possibleMovements() {
+    StringBuilder sb = new StringBuilder();
+    sb.append("CHOOSE A DIRECTION\n");
+    sb.append(player.getCurrent().possibleDirections().toString());
+    return sb.toString();
+  }
+
+  @Override
+  public String playerDetails() {
+    StringBuilder sb = new StringBuilder();
+    sb.append("The player is currently at location: " + player.getCurrent().getNid() + "\n");
+    if (player.getAllPickedTreasures().size() == 0) {
+      sb.append("The player has not collected any treasures so far.");
+    } else {
+      sb.append("The Treasures collected so far by the player are: \n");
+      sb.append(player.getAllPickedTreasures().toString() + "\n");
+    }
+    return sb.toString();
+  }
+
+  @Override
+  public String playerLocationDetails() {
+    StringBuilder sb = new StringBuilder();
+    sb.append("Available directions from Node " + player.getCurrent().getNid() + " are:\n");
+    sb.append(player.getCurrent().possibleDirections().toString() + "\n");
+    if (player.getCurrent().getTreasures().size() == 0) {
+      sb.append("There are no Treasures in this location\n");
+    } else {
+      sb.append("The Treasures available at Node " + player.getCurrent().getNid() + " are:\n");
+      sb.append(player.getCurrent().getTreasures().toString() + "\n");
+    }
+    return sb.toString();
+  }
+
+  @Override
+  public String playerMovement(int move) {
+    if (move > player.getCurrent().possibleDirections().size() || move < 1) {
+      return String.format("Enter valid direction\n");
+    }
+    StringBuilder sb = new StringBuilder();
+    int m = move;
+
+    List<Directions> tempAvailableDirections = player.getCurrent().possibleDirections();
+
+    // sb.append(tempAvailableDirections.toString());
+
+    Directions temp = tempAvailableDirections.get(m - 1);
+    sb.append(player.move(temp));
+    sb.append("\n-------------------------------------------"
+        + "--------------------------------------------\n");
+
+    return sb.toString();
+  }
+
+  @Override
+  public boolean stepPlayer(int move) {
+    List<Directions> directions = player.getCurrent().possibleDirections();
+    if (move > directions.size() || move < 1) {
+      return false;
+    }
+    player.step(directions.get(move - 1));
+    return true;
+  }
+
+  @Override
+  public IPlayer getPlayer() {
+    return this.player;
+  }
+
+  /**
+   * Gets the path finder of the dungeon. It is made on first use, once the paths are final.
+   *
+   * @return The path finder.
+   */
+  protected PathFinder getPathFinder() {
+    if (this.pathFinder == null) {
+      this.pathFinder = new PathFinder(getGraph(), this.rows, this.cols, this.isWrapping);
+    }
+    return this.pathFinder;
+  }
+
+  /**
+   * Gets a distance index over the paths of the dungeon if it is a spanning tree or close to
+   * one. It is made on first use, once the paths are final, and belongs to this game. A shared
+   * topology never holds one, so it costs only the bytes of its cells wherever it is kept.
+   *
+   * @return The index, or null if the dungeon has too many paths outside its spanning tree.
+   */
+  protected TreeDistanceIndex getTreeIndex() {
+    if (!this.treeIndexChecked) {
+      IGraph graph = getGraph();
+      if (TreeDistanceIndex.isNearTree(graph)) {
+        this.treeIndex = new TreeDistanceIndex(graph, TreeDistanceIndex.MAX_EXTRA_PATHS);
+      }
+      this.treeIndexChecked = true;
+    }
+    return this.treeIndex;
+  }
+
+  /**
+   * Gets the number of moves from a node to the exit. Dungeons that are a spanning tree or
+   * close to one read it from the distance index; the others search with the path finder.
+   *
+   * @param nid The node id.
+   * @param exit The node id of the exit.
+   * @return The number of moves, or {@link DistanceEngine#UNREACHABLE}.
+   */
+  protected int exitDistance(int nid, int exit) {
+    TreeDistanceIndex index = getTreeIndex();
+    if (index != null) {
+      return index.distance(nid, exit);
+    }
+    PathFinder finder = getPathFinder();
+    finder.setExit(exit);
+    return finder.distanceToExit(nid);
+  }
+
+  @Override
+  public int distanceToExit() {
+    return exitDistance(player.getCurrent().getNid(), chosenPath.getEnd().getNid());
+  }
+
+  /**
+   * Only directions the player is offered are suggested, so the hint can always be played
+   * through {@link #playerMovement(int)}.
+   */
+  @Override
+  public Directions hint() {
+    int exit = chosenPath.getEnd().getNid();
+    int here = player.getCurrent().getNid();
+    Directions best = null;
+    int bestDistance = exitDistance(here, exit);
+    for (Directions d : player.getCurrent().possibleDirections()) {
+      int distance = exitDistance(PathFinder.step(here, d, this.rows, this.cols), exit);
+      if (distance < bestDistance) {
+        best = d;
+        bestDistance = distance;
+      }
+    }
+    return best;
+  }
+
+  @Override
+  public String gameEnded() {
+    StringBuilder sb = new StringBuilder();
+    sb.append(player.getAllPickedTreasures().toString() + "\n");
+    sb.append("GAME ENDED");
+
+    return sb.toString();
+  }
+
+  @Override
+  public boolean hasEnded() {
+    return chosenPath.getEnd().getNid() != player.getCurrent().getNid();
+  }
+
+  // -------------------------Saving the dungeon--------------------------------------
+
+  @Override
+  public void writeTo(OutputStream out) throws IOException {
+    DataOutputStream data = new DataOutputStream(out);
+    DungeonFormat.writeHeader(data, this.rows, this.cols, this.isWrapping,
+        chosenPath == null ? DungeonFormat.NO_NODE : chosenPath.getStart().getNid(),
+        chosenPath == null ? DungeonFormat.NO_NODE : chosenPath.getEnd().getNid());
+    byte[] row = new byte[this.cols];
+    for (int i = 0; i < this.rows; i++) {
+      for (int j = 0; j < this.cols; j++) {
+        row[j] = (byte) packedCell(i * this.cols + j);
+      }
+      data.write(row);
+    }
+    data.flush();
+  }
+
+  // -------------------------Printing the dungeon--------------------------------------
+
+  /**
+   * Writes text to an appendable. Used to print into a string builder.
+   */
+  interface Printer {
+    void print(Appendable out) throws IOException;
+  }
+
+  /**
+   * Collects the text of a printer in a string.
+   *
+   * @param printer Writes the text.
+   * @return The text.
+   */
+  static String print(Printer printer) {
+    StringBuilder sb = new StringBuilder();
+    try {
+      printer.print(sb);
+    } catch (IOException e) {
+      // A string builder never fails.
+      throw new UncheckedIOException(e);
+    }
+    return sb.toString();
+  }
+
+  @Override
+  public String printDungeon() {
+    return print(this::printDungeon);
+  }
+
+  @Override
+  public void printDungeon(Appendable out) throws IOException {
+    RowBuffer buffer = new RowBuffer(64);
+    buffer.append("ALL THE NODES IN A DUNGEON JUST AFTER ITS CONSTRUCTION\n");
+    for (int i = 0; i < rows; i++) {
+      for (int j = 0; j < cols; j++) {
+        buffer.append(getNode(i * cols + j).toString()).append('\n');
+      }
+      buffer.flushIfFull(out);
+    }
+    buffer.flush(out);
+  }
+
+  @Override
+  public String printUniquePath() {
+    return print(this::printUniquePath);
+  }
+
+  @Override
+  public String printLeftOverPath() {
+    return print(this::printLeftOverPath);
+  }
+
+  @Override
+  public String printPotentialPathsDirections() {
+    return print(this::printPotentialPathsDirections);
+  }
+
+  @Override
+  public void printPotentialPathsDirections(Appendable out) throws IOException {
+    RowBuffer buffer = new RowBuffer(256);
+    buffer.append("ALL THE NODES IN DUNGEON AFTER KRUSKAL AND ADDING "
+        + "INTERCONNCETIVITY ALONG WITH POSSIBLE DIRECTIONS AND TREASURES\n");
+    for (int i = 0; i < rows; i++) {
+      for (int j = 0; j < cols; j++) {
+        INode node = getNode(i * cols + j);
+        buffer.append("\nNODE: ").append(node.getNid())
+            .append("\nPossible Directions: ").append(node.directionsOfNode())
+            .append("\nLocation type of Node: ").append(node.locationOfNode())
+            .append('\n').repeat('-', 90).append('\n');
+      }
+      buffer.flushIfFull(out);
+    }
+    buffer.flush(out);
+  }
+
+  @Override
+  public String displayDungeon() {
+    return print(this::displayDungeon);
+  }
+
+  @Override
+  public void displayDungeon(Appendable out) throws IOException {
+    displayDungeon(out, 0, this.rows);
+  }
+
+  /**
+   * Every cell takes seven characters on each of its three lines, except that cave numbers
+   * of more than two digits widen the middle one.
+   */
+  @Override
+  public void displayDungeon(Appendable out, int fromRow, int toRow) throws IOException {
+    if (out == null || fromRow < 0 || toRow > this.rows || fromRow > toRow) {
+      throw new IllegalArgumentException("Enter valid inputs");
+    }
+    int digits = Integer.toString(Math.max(0, this.rows * this.cols - 1)).length();
+    RowBuffer buffer = new RowBuffer(this.cols * (5 + Math.max(2, digits)) + 1);
+    INode[] row = new INode[this.cols];
+
+    for (int i = fromRow; i < toRow; i++) {
+      for (int j = 0; j < this.cols; j++) {
+        row[j] = getNode(i * cols + j);
+      }
+      for (INode temp : row) {
+        buffer.append(temp.getNorth() ? "  |   " : "      ").append(' ');
+      }
+      buffer.append('\n').flush(out);
+      for (INode temp : row) {
+        buffer.append(temp.getWest() ? "- " : "  ");
+        if (temp.getType() == LocationType.CAVE) {
+          if (temp.getNid() < 10) {
+            buffer.append(' ');
+          }
+          buffer.append(temp.getNid());
+        } else {
+          buffer.append("T ");
+        }
+        buffer.append(temp.getEast() ? " -" : "  ").append(' ');
+      }
+      buffer.append('\n').flush(out);
+      for (INode temp : row) {
+        buffer.append(temp.getSouth() ? "  |   " : "      ").append(' ');
+      }
+      buffer.append('\n').append('\n').flush(out);
+    }
+  }
+
+  @Override
+  public Viewport viewport(int viewRows, int viewCols) {
+    return new Viewport(this, viewRows, viewCols);
+  }
+
+  /**
+   * Ranges are sized so each holds a bounded number of cells, so a tall dungeon is split
+   * into many small ranges instead of one large one per thread.
+   */
+  @Override
+  public void displayDungeon(Writer out, ExecutorService executor, int parallelism)
+      throws IOException {
+    if (out == null || executor == null || parallelism < 1) {
+      throw new IllegalArgumentException("Enter valid inputs");
+    }
+    int rowsPerRange = Math.max(1, Math.min((this.rows + parallelism - 1) / parallelism,
+        CELLS_PER_RANGE / Math.max(1, this.cols)));
+    ArrayDeque<Future<CharArrayWriter>> pending = new ArrayDeque<>();
+    int next = 0;
+    try {
+      while (next < this.rows || !pending.isEmpty()) {
+        while (next < this.rows && pending.size() < 2 * parallelism) {
+          int from = next;
+          int to = Math.min(this.rows, from + rowsPerRange);
+          pending.add(executor.submit(() -> {
+            CharArrayWriter part = new CharArrayWriter();
+            displayDungeon(part, from, to);
+            return part;
+          }));
+          next = to;
+        }
+        pending.remove().get().writeTo(out);
+      }
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new InterruptedIOException("Interrupted while displaying the dungeon");
+    } catch (ExecutionException e) {
+      if (e.getCause() instanceof IOException) {
+        throw (IOException) e.getCause();
+      }
+      throw new IllegalStateException(e.getCause());
+    } finally {
+      for (Future<CharArrayWriter> part : pending) {
+        part.cancel(true);
+      }
+    }
+  }
+}
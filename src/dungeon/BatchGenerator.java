@@ -0,0 +1,176 @@
+package dungeon;
+
+import java.lang.reflect.Method;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.function.BiConsumer;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+/**
+ * Generates many dungeons with the same parameters at once. Every dungeon runs the whole
+ * pipeline on the given executor and is handed to a consumer as soon as it is finished, for
+ * example to write it to a file or put it on a queue.
+ *
+ * <p>Dungeon i of a batch is built from the parameters with the seed increased by i, so a
+ * batch always produces the same dungeons, no matter how many threads run it. At most a fixed
+ * number of dungeons are in progress at a time, so a large batch on virtual threads does not
+ * hold every dungeon in memory at once.
+ *
+ * @author anush
+ *
+ */
+public class BatchGenerator {
+
+  private final ExecutorService executor;
+  private final int parallelism;
+  private final Function<DungeonKey, IDungeon> factory;
+
+  /**
+   * Construct a generator that builds every dungeon as a {@link Dungeon}.
+   *
+   * @param executor Runs the dungeons. It is not shut down by this class.
+   * @param parallelism The most dungeons in progress at a time.
+   */
+  public BatchGenerator(ExecutorService executor, int parallelism) {
+    this(executor, parallelism, key -> new Dungeon(key.getRows(), key.getCols(),
+        key.getIsWrapping(), key.getInterconnectivity(), key.getPercentageOfTreasure(),
+        new SeededRandom(key.getSeed()), StartEndSelection.SAMPLED));
+  }
+
+  /**
+   * Construct a generator with a custom way to create dungeons. The factory only has to
+   * create the dungeon; the generator runs every building step.
+   *
+   * @param executor Runs the dungeons. It is not shut down by this class.
+   * @param parallelism The most dungeons in progress at a time.
+   * @param factory Creates an unbuilt dungeon for a key.
+   */
+  public BatchGenerator(ExecutorService executor, int parallelism,
+      Function<DungeonKey, IDungeon> factory) {
+    if (executor == null || parallelism < 1 || factory == null) {
+      throw new IllegalArgumentException("Enter valid inputs");
+    }
+    this.executor = executor;
+    this.parallelism = parallelism;
+    this.factory = factory;
+  }
+
+  /**
+   * Creates a pool of platform threads.
+   *
+   * @param threads The number of threads.
+   * @return A new executor.
+   */
+  public static ExecutorService platformExecutor(int threads) {
+    return Executors.newFixedThreadPool(threads);
+  }
+
+  /**
+   * Creates an executor that starts a virtual thread for every task. On a Java version
+   * without virtual threads this falls back to a pool with one platform thread per
+   * processor.
+   *
+   * @return A new executor.
+   */
+  public static ExecutorService virtualExecutor() {
+    return virtualExecutor(() -> platformExecutor(Runtime.getRuntime().availableProcessors()));
+  }
+
+  /**
+   * Creates an executor that starts a virtual thread for every task, or the given one on a
+   * Java version without virtual threads.
+   *
+   * @param fallback Creates the executor to use without virtual threads.
+   * @return A new executor.
+   */
+  public static ExecutorService virtualExecutor(Supplier<ExecutorService> fallback) {
+    if (fallback == null) {
+      throw new IllegalArgumentException("Enter valid inputs");
+    }
+    try {
+      Method factory = Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+      return (ExecutorService) factory.invoke(null);
+    } catch (ReflectiveOperationException e) {
+      return fallback.get();
+    }
+  }
+
+  /**
+   * Generates a batch of dungeons and waits until all of them are handed to the consumer.
+   * The consumer is called from the executor threads, so it must be thread safe.
+   *
+   * @param parameters The parameters of every dungeon and the seed of the first one.
+   * @param count The number of dungeons.
+   * @param consumer Receives the key and the finished dungeon, with the player placed.
+   * @return The throughput and the time spent in every stage.
+   * @throws InterruptedException If the calling thread is interrupted while waiting.
+   */
+  public BatchReport generate(DungeonKey parameters, int count,
+      BiConsumer<DungeonKey, IDungeon> consumer) throws InterruptedException {
+    if (parameters == null || count < 0 || consumer == null) {
+      throw new IllegalArgumentException("Enter valid inputs");
+    }
+    AtomicLongArray stageNanos = new AtomicLongArray(Stage.values().length);
+
+    long start = System.nanoTime();
+    BoundedTasks.run(this.executor, this.parallelism, count, i -> {
+      DungeonKey key = new DungeonKey(parameters.getRows(), parameters.getCols(),
+          parameters.getIsWrapping(), parameters.getInterconnectivity(),
+          parameters.getPercentageOfTreasure(), parameters.getSeed() + i);
+      consumer.accept(key, build(this.factory.apply(key), stageNanos));
+    }, "Could not generate the batch");
+    long elapsed = System.nanoTime() - start;
+
+    long[] nanos = new long[stageNanos.length()];
+    for (int i = 0; i < nanos.length; i++) {
+      nanos[i] = stageNanos.get(i);
+    }
+    return new BatchReport(count, elapsed, nanos);
+  }
+
+  /**
+   * Runs every building step of a dungeon the way {@code Driver} does and places the player.
+   *
+   * @param d The unbuilt dungeon.
+   * @param stageNanos Where the time of every stage is added up, or null.
+   * @return The same dungeon.
+   */
+  static IDungeon build(IDungeon d, AtomicLongArray stageNanos) {
+    long time = System.nanoTime();
+    d.createDungeon();
+    time = record(stageNanos, Stage.CREATE_DUNGEON, time);
+    d.potentialPaths();
+    time = record(stageNanos, Stage.POTENTIAL_PATHS, time);
+    if (d.getIsWrapping()) {
+      d.wrappingPotentialPath();
+      time = record(stageNanos, Stage.WRAPPING_POTENTIAL_PATH, time);
+    }
+    d.kruskalAlgorithms();
+    time = record(stageNanos, Stage.KRUSKAL_ALGORITHMS, time);
+    d.addInterconnectivity();
+    time = record(stageNanos, Stage.ADD_INTERCONNECTIVITY, time);
+    d.updateDirections();
+    time = record(stageNanos, Stage.UPDATE_DIRECTIONS, time);
+    d.setLocationType();
+    time = record(stageNanos, Stage.SET_LOCATION_TYPE, time);
+    d.setTreasures();
+    time = record(stageNanos, Stage.SET_TREASURES, time);
+    d.adjlist();
+    time = record(stageNanos, Stage.ADJLIST, time);
+    d.setStartEnd();
+    d.setPlayerStartAndEnd();
+    record(stageNanos, Stage.SET_PLAYER_START_AND_END, time);
+    return d;
+  }
+
+  private static long record(AtomicLongArray stageNanos, Stage stage, long since) {
+    long now = System.nanoTime();
+    if (stageNanos == null) {
+      return now;
+    }
+    stageNanos.addAndGet(stage.ordinal(), now - since);
+    return now;
+  }
+}
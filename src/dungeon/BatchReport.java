@@ -0,0 +1,74 @@
+package dungeon;
+
+/**
+ * The result of generating a batch of dungeons: how many were built, how long the batch took
+ * from start to end and how much time was spent in every stage. Stage times are added up
+ * over all threads, so with several threads their sum can be larger than the elapsed time.
+ *
+ * @author anush
+ *
+ */
+public final class BatchReport {
+
+  private final int count;
+  private final long elapsedNanos;
+  private final long[] stageNanos;
+
+  BatchReport(int count, long elapsedNanos, long[] stageNanos) {
+    this.count = count;
+    this.elapsedNanos = elapsedNanos;
+    this.stageNanos = stageNanos.clone();
+  }
+
+  /**
+   * Gets the number of dungeons that were generated.
+   *
+   * @return The number of dungeons.
+   */
+  public int getCount() {
+    return this.count;
+  }
+
+  /**
+   * Gets the wall clock time of the whole batch.
+   *
+   * @return The elapsed time in nanoseconds.
+   */
+  public long getElapsedNanos() {
+    return this.elapsedNanos;
+  }
+
+  /**
+   * Gets the throughput of the batch.
+   *
+   * @return The number of dungeons generated per second.
+   */
+  public double getDungeonsPerSecond() {
+    return this.elapsedNanos == 0 ? 0 : this.count * 1e9 / this.elapsedNanos;
+  }
+
+  /**
+   * Gets the time spent in one stage over all dungeons of the batch.
+   *
+   * @param stage The stage.
+   * @return The total time in nanoseconds.
+   */
+  public long getStageNanos(Stage stage) {
+    return this.stageNanos[stage.ordinal()];
+  }
+
+  @Override
+  public String toString() {
+    StringBuilder sb = new StringBuilder();
+    sb.append(String.format("%d dungeons in %.3f s, %.1f dungeons per second\n", this.count,
+        this.elapsedNanos / 1e9, getDungeonsPerSecond()));
+    for (Stage stage : Stage.values()) {
+      long nanos = this.stageNanos[stage.ordinal()];
+      if (nanos > 0) {
+        sb.append(String.format("%s: %.3f ms per dungeon\n", stage.getStage(),
+            nanos / 1e6 / Math.max(1, this.count)));
+      }
+    }
+    return sb.toString();
+  }
+}
@@ -0,0 +1,63 @@
+package dungeon;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.IntConsumer;
+
+/**
+ * Runs numbered tasks on an executor with at most a fixed number in progress at a time. A
+ * task is only handed to the executor once a slot is free, so the work of a large batch is
+ * never queued, and held in memory, all at once.
+ *
+ * @author anush
+ *
+ */
+final class BoundedTasks {
+
+  private BoundedTasks() {
+  }
+
+  /**
+   * Runs tasks 0 to count - 1 and waits until all of them are done. Once a task fails no more
+   * tasks are started, and the ones in progress are waited for.
+   *
+   * @param executor Runs the tasks. It is not shut down.
+   * @param parallelism The most tasks in progress at a time.
+   * @param count The number of tasks.
+   * @param task Runs the task with the given number.
+   * @param failure The message of the exception thrown if a task fails.
+   * @throws InterruptedException If the calling thread is interrupted while waiting.
+   * @throws IllegalStateException If a task failed, with the first failure as its cause.
+   */
+  static void run(ExecutorService executor, int parallelism, int count, IntConsumer task,
+      String failure) throws InterruptedException {
+    AtomicReference<Throwable> first = new AtomicReference<>();
+    Semaphore slots = new Semaphore(parallelism);
+
+    for (int i = 0; i < count && first.get() == null; i++) {
+      int index = i;
+      slots.acquire();
+      try {
+        executor.execute(() -> {
+          try {
+            task.accept(index);
+          } catch (RuntimeException | Error e) {
+            first.compareAndSet(null, e);
+          } finally {
+            slots.release();
+          }
+        });
+      } catch (RuntimeException e) {
+        slots.release();
+        throw e;
+      }
+    }
+    slots.acquire(parallelism);
+    slots.release(parallelism);
+
+    if (first.get() != null) {
+      throw new IllegalStateException(failure, first.get());
+    }
+  }
+}
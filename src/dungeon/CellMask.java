@@ -0,0 +1,73 @@
+package dungeon;
+
+/**
+ * The bits used to pack a whole node into a single byte. The low four bits hold the
+ * directions a player can move in, the next bit tells caves from tunnels and the top three
+ * bits hold the treasures.
+ *
+ * @author anush
+ *
+ */
+public final class CellMask {
+
+  public static final int NORTH = 0x01;
+  public static final int SOUTH = 0x02;
+  public static final int EAST = 0x04;
+  public static final int WEST = 0x08;
+  public static final int CAVE = 0x10;
+  public static final int DIAMOND = 0x20;
+  public static final int RUBY = 0x40;
+  public static final int SAPHIRE = 0x80;
+
+  public static final int DIRECTIONS = NORTH | SOUTH | EAST | WEST;
+  public static final int TREASURES = DIAMOND | RUBY | SAPHIRE;
+
+  private CellMask() {
+  }
+
+  /**
+   * Gets the bit that stores the given direction.
+   *
+   * @param d The direction.
+   * @return The bit for that direction.
+   */
+  public static int of(Directions d) {
+    switch (d) {
+      case North:
+        return NORTH;
+      case South:
+        return SOUTH;
+      case East:
+        return EAST;
+      default:
+        return WEST;
+    }
+  }
+
+  /**
+   * Gets the bit that stores the given treasure.
+   *
+   * @param t The treasure.
+   * @return The bit for that treasure.
+   */
+  public static int of(Treasure t) {
+    switch (t) {
+      case DIAMOND:
+        return DIAMOND;
+      case RUBY:
+        return RUBY;
+      default:
+        return SAPHIRE;
+    }
+  }
+
+  /**
+   * Counts the directions a player can move in from a packed node.
+   *
+   * @param cell The packed node.
+   * @return The number of paths leaving the node.
+   */
+  public static int degree(int cell) {
+    return Integer.bitCount(cell & DIRECTIONS);
+  }
+}
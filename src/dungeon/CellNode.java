@@ -0,0 +1,172 @@
+package dungeon;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * A light-weight node that reads and writes a single packed byte of a packed dungeon.
+ * These are created on demand and hold no state of their own, so two views of the same
+ * position are equal and see the same changes.
+ *
+ * @author anush
+ *
+ */
+public class CellNode implements INode {
+
+  private final PackedDungeon dungeon;
+  private final int nId;
+
+  /**
+   * Construct a view of a packed node.
+   *
+   * @param dungeon The dungeon that stores the node.
+   * @param nId The unique identifier of the node.
+   */
+  CellNode(PackedDungeon dungeon, int nId) {
+    this.dungeon = dungeon;
+    this.nId = nId;
+  }
+
+  private boolean has(int bit) {
+    return (this.dungeon.cell(this.nId) & bit) != 0;
+  }
+
+  @Override
+  public int getRow() {
+    return this.nId / this.dungeon.getCols();
+  }
+
+  @Override
+  public int getCol() {
+    return this.nId % this.dungeon.getCols();
+  }
+
+  @Override
+  public int getNid() {
+    return this.nId;
+  }
+
+  @Override
+  public boolean getNorth() {
+    return has(CellMask.NORTH);
+  }
+
+  @Override
+  public boolean getSouth() {
+    return has(CellMask.SOUTH);
+  }
+
+  @Override
+  public boolean getEast() {
+    return has(CellMask.EAST);
+  }
+
+  @Override
+  public boolean getWest() {
+    return has(CellMask.WEST);
+  }
+
+  @Override
+  public void setNorth() {
+    this.dungeon.setBits(this.nId, CellMask.NORTH);
+  }
+
+  @Override
+  public void setSouth() {
+    this.dungeon.setBits(this.nId, CellMask.SOUTH);
+  }
+
+  @Override
+  public void setEast() {
+    this.dungeon.setBits(this.nId, CellMask.EAST);
+  }
+
+  @Override
+  public void setWest() {
+    this.dungeon.setBits(this.nId, CellMask.WEST);
+  }
+
+  /**
+   * The count of a packed node is the number of direction bits that are set, so there is
+   * nothing to update here.
+   */
+  @Override
+  public void setCount() {
+    // Derived from the direction bits.
+  }
+
+  @Override
+  public void setType() {
+    if (CellMask.degree(this.dungeon.cell(this.nId)) == 2) {
+      this.dungeon.clearBits(this.nId, CellMask.CAVE);
+    } else {
+      this.dungeon.setBits(this.nId, CellMask.CAVE);
+    }
+  }
+
+  @Override
+  public void setTreasure(Treasure t) {
+    this.dungeon.setBits(this.nId, CellMask.of(t));
+  }
+
+  @Override
+  public LocationType getType() {
+    return has(CellMask.CAVE) ? LocationType.CAVE : LocationType.TUNNEL;
+  }
+
+  @Override
+  public List<Directions> possibleDirections() {
+    List<Directions> directions = new ArrayList<>();
+    for (Directions d : Directions.values()) {
+      if (has(CellMask.of(d))) {
+        directions.add(d);
+      }
+    }
+    return directions;
+  }
+
+  @Override
+  public String directionsOfNode() {
+    return possibleDirections().toString();
+  }
+
+  @Override
+  public String locationOfNode() {
+    StringBuilder sb = new StringBuilder();
+    sb.append("Type(" + this.getType() + ", " + CellMask.degree(this.dungeon.cell(this.nId))
+        + ")");
+    if (this.getType() == LocationType.CAVE) {
+      sb.append("\nTreasures: " + this.getTreasures());
+    }
+    return sb.toString();
+  }
+
+  @Override
+  public List<Treasure> getTreasures() {
+    return TreasureLedger.toList(getTreasureCounts());
+  }
+
+  @Override
+  public int getTreasureCounts() {
+    return TreasureLedger.fromCell(this.dungeon.cell(this.nId));
+  }
+
+  @Override
+  public boolean equals(Object o) {
+    if (!(o instanceof CellNode)) {
+      return false;
+    }
+    CellNode other = (CellNode) o;
+    return this.dungeon == other.dungeon && this.nId == other.nId;
+  }
+
+  @Override
+  public int hashCode() {
+    return this.nId;
+  }
+
+  @Override
+  public String toString() {
+    return "Node(" + this.getRow() + ", " + this.getCol() + ", " + this.nId + ")";
+  }
+}
@@ -0,0 +1,383 @@
+package dungeon;
+
+import java.io.IOException;
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * A dungeon that packs every node into one byte of a flat array instead of keeping a node
+ * object per location. The directions, the cave or tunnel type and the treasures of a node
+ * all live in that byte (see {@link CellMask}), and {@link CellNode} views are handed out on
+ * demand so players can use it like any other dungeon.
+ *
+ * <p>Edges are never stored as objects either. Every node owns the edge to its south and to
+ * its east neighbour, so edge 2 * id leads south and edge 2 * id + 1 leads east. The edges
+ * that are part of the dungeon are kept in a bitset over these ids.
+ *
+ * @author anush
+ *
+ */
+public class CompactDungeon extends PackedDungeon {
+
+  private static final int FEISTEL_ROUNDS = 4;
+
+  private final int interconnectivity;
+  private final int percentageOfTreasures;
+  private byte[] cells;
+  private long[] openEdges;
+  private boolean potentialListed;
+  private boolean wrapEdges;
+  private boolean kruskalDone;
+  private int leftOverCount;
+  private int caveCount;
+  private int numberOfCavesToAssignTreasure;
+  private final TreasureLedger treasures;
+
+  /**
+   * A constructor to create a compact dungeon. The start and end caves are sampled.
+   *
+   * @param rows Number of rows we want in a dungeon.
+   * @param cols Number of columns we want in a dungeon.
+   * @param isWrapping A boolean value that decides whether the dungeon is wrapping or non-wrapping.
+   * @param interconnectivity The number of extra connections we want in a dungeon.
+   * @param percentageOfTreasure The amount of treasure that needs to be randomly placed in the
+   *        dungeon.
+   * @param r This is a parameter for randomness. It is used for implementation and testing.
+   */
+  public CompactDungeon(int rows, int cols, boolean isWrapping, int interconnectivity,
+      int percentageOfTreasure, RandomInterface r) {
+    this(rows, cols, isWrapping, interconnectivity, percentageOfTreasure, r,
+        StartEndSelection.SAMPLED);
+  }
+
+  /**
+   * A constructor to create a compact dungeon that picks the start and end caves in the given
+   * way.
+   *
+   * @param rows Number of rows we want in a dungeon.
+   * @param cols Number of columns we want in a dungeon.
+   * @param isWrapping A boolean value that decides whether the dungeon is wrapping or non-wrapping.
+   * @param interconnectivity The number of extra connections we want in a dungeon.
+   * @param percentageOfTreasure The amount of treasure that needs to be randomly placed in the
+   *        dungeon.
+   * @param r This is a parameter for randomness. It is used for implementation and testing.
+   * @param selection How the start and end caves of the player are picked.
+   */
+  public CompactDungeon(int rows, int cols, boolean isWrapping, int interconnectivity,
+      int percentageOfTreasure, RandomInterface r, StartEndSelection selection) {
+    super(rows, cols, isWrapping, r, selection);
+    this.interconnectivity = interconnectivity;
+    this.percentageOfTreasures = percentageOfTreasure;
+    this.treasures = new TreasureLedger();
+  }
+
+  // -------------------------Packed cell access--------------------------------------
+
+  @Override
+  int cell(int nid) {
+    return this.cells[nid] & 0xFF;
+  }
+
+  @Override
+  void setBits(int nid, int bits) {
+    this.cells[nid] |= bits;
+  }
+
+  @Override
+  void clearBits(int nid, int bits) {
+    this.cells[nid] &= ~bits;
+  }
+
+  @Override
+  protected boolean isValidEdge(int edge) {
+    int nid = edge >>> 1;
+    if ((edge & 1) == 0) {
+      return this.wrapEdges || nid / this.cols + 1 < this.rows;
+    }
+    return this.wrapEdges || nid % this.cols + 1 < this.cols;
+  }
+
+  @Override
+  protected boolean isOpen(int edge) {
+    return (this.openEdges[edge >>> 6] & (1L << edge)) != 0;
+  }
+
+  private void open(int edge) {
+    this.openEdges[edge >>> 6] |= 1L << edge;
+  }
+
+  private int validEdgeCount() {
+    if (this.wrapEdges) {
+      return 2 * this.vertices;
+    }
+    return this.rows * (this.cols - 1) + (this.rows - 1) * this.cols;
+  }
+
+  // -------------------------Building the dungeon--------------------------------------
+
+  @Override
+  public void createDungeon() {
+    GenerationStageEvent event = beginStage(Stage.CREATE_DUNGEON);
+    this.cells = new byte[this.vertices];
+    this.openEdges = new long[(2 * this.vertices + 63) >>> 6];
+    commitStage(event);
+  }
+
+  @Override
+  public void potentialPaths() {
+    GenerationStageEvent event = beginStage(Stage.POTENTIAL_PATHS);
+    this.potentialListed = true;
+    commitStage(event);
+  }
+
+  @Override
+  public void wrappingPotentialPath() {
+    GenerationStageEvent event = beginStage(Stage.WRAPPING_POTENTIAL_PATH);
+    this.wrapEdges = true;
+    commitStage(event);
+  }
+
+  /**
+   * Runs Kruskal's algorithm without materialising the edge list. The edges are visited in
+   * the order of a keyed Feistel permutation over the edge ids, which is a random shuffle
+   * that needs no memory. The union-find keeps negative set sizes in the roots, so a single
+   * int array is all the extra space we need.
+   */
+  @Override
+  public void kruskalAlgorithms() {
+    GenerationStageEvent event = beginStage(Stage.KRUSKAL_ALGORITHMS);
+    int[] parent = new int[this.vertices];
+    for (int i = 0; i < this.vertices; i++) {
+      parent[i] = -1;
+    }
+
+    int edges = 2 * this.vertices;
+    int halfBits = 1;
+    while (1L << (2 * halfBits) < edges) {
+      halfBits++;
+    }
+    long[] keys = new long[FEISTEL_ROUNDS];
+    for (int i = 0; i < FEISTEL_ROUNDS; i++) {
+      keys[i] = r.getInt(Integer.MAX_VALUE);
+    }
+
+    long domain = 1L << (2 * halfBits);
+    int tree = 0;
+    int drawn = 0;
+    for (long i = 0; i < domain && tree < this.vertices - 1; i++) {
+      long permuted = permute(i, halfBits, keys);
+      if (permuted >= edges) {
+        continue;
+      }
+      int edge = (int) permuted;
+      if (!isValidEdge(edge)) {
+        continue;
+      }
+      drawn++;
+      int x = find(parent, edge >>> 1);
+      int y = find(parent, edgeEnd(edge));
+      if (x != y) {
+        if (parent[x] > parent[y]) {
+          int temp = x;
+          x = y;
+          y = temp;
+        }
+        parent[x] += parent[y];
+        parent[y] = x;
+        open(edge);
+        tree++;
+      }
+    }
+
+    this.leftOverCount = validEdgeCount() - tree;
+    this.potentialListed = false;
+    this.kruskalDone = true;
+    event.edgesDrawn = drawn;
+    event.edgesRejected = drawn - tree;
+    commitStage(event);
+  }
+
+  @Override
+  public void parallelKruskalAlgorithms(ForkJoinPool pool) {
+    GenerationStageEvent event = beginStage(Stage.PARALLEL_KRUSKAL_ALGORITHMS);
+    TiledSpanningForest forest = new TiledSpanningForest(this.rows, this.cols, this.wrapEdges,
+        TiledSpanningForest.DEFAULT_TILE_SIZE);
+    int tree = forest.build(pool, r, this.openEdges);
+    this.leftOverCount = forest.getValidEdges() - tree;
+    this.potentialListed = false;
+    this.kruskalDone = true;
+    event.edgesDrawn = forest.getValidEdges();
+    event.edgesRejected = this.leftOverCount;
+    commitStage(event);
+  }
+
+  private static int find(int[] parent, int vertex) {
+    while (parent[vertex] >= 0) {
+      int next = parent[vertex];
+      if (parent[next] >= 0) {
+        parent[vertex] = parent[next];
+      }
+      vertex = next;
+    }
+    return vertex;
+  }
+
+  private static long permute(long value, int halfBits, long[] keys) {
+    long mask = (1L << halfBits) - 1;
+    long left = value >>> halfBits;
+    long right = value & mask;
+    for (long key : keys) {
+      long z = (right ^ key) * 0x9E3779B97F4A7C15L;
+      z = (z ^ (z >>> 29)) * 0xBF58476D1CE4E5B9L;
+      z ^= z >>> 32;
+      long temp = right;
+      right = (left ^ z) & mask;
+      left = temp;
+    }
+    return (left << halfBits) | right;
+  }
+
+  /**
+   * Opens interconnectivity extra edges picked uniformly among the edges Kruskal left out,
+   * using selection sampling so the left over edges never have to be listed.
+   */
+  @Override
+  public void addInterconnectivity() {
+    GenerationStageEvent event = beginStage(Stage.ADD_INTERCONNECTIVITY);
+    if (this.interconnectivity > this.leftOverCount) {
+      throw new IllegalArgumentException("Not enough edges. Try a lesser number.");
+    }
+    int needed = this.interconnectivity;
+    int remaining = this.leftOverCount;
+    for (int edge = 0; edge < 2 * this.vertices && needed > 0; edge++) {
+      if (isValidEdge(edge) && !isOpen(edge)) {
+        if (r.getInt(remaining) < needed) {
+          open(edge);
+          needed--;
+        }
+        remaining--;
+      }
+    }
+    this.leftOverCount -= this.interconnectivity;
+    commitStage(event);
+  }
+
+  @Override
+  public void updateDirections() {
+    GenerationStageEvent event = beginStage(Stage.UPDATE_DIRECTIONS);
+    for (int w = 0; w < this.openEdges.length; w++) {
+      long word = this.openEdges[w];
+      while (word != 0) {
+        int edge = (w << 6) + Long.numberOfTrailingZeros(word);
+        word &= word - 1;
+        int start = edge >>> 1;
+        int end = edgeEnd(edge);
+        if ((edge & 1) == 0) {
+          setBits(start, CellMask.SOUTH);
+          setBits(end, CellMask.NORTH);
+        } else {
+          setBits(start, CellMask.EAST);
+          setBits(end, CellMask.WEST);
+        }
+      }
+    }
+    commitStage(event);
+  }
+
+  @Override
+  public void setLocationType() {
+    GenerationStageEvent event = beginStage(Stage.SET_LOCATION_TYPE);
+    this.caveCount = 0;
+    for (int i = 0; i < this.vertices; i++) {
+      if (CellMask.degree(cell(i)) == 2) {
+        clearBits(i, CellMask.CAVE);
+      } else {
+        setBits(i, CellMask.CAVE);
+        this.caveCount++;
+      }
+    }
+    commitStage(event);
+  }
+
+  /**
+   * Gives treasure to a uniformly chosen set of caves using selection sampling, so no list
+   * of caves is built. Like the other dungeons a chosen cave gets the first one, two or
+   * three kinds of treasure.
+   */
+  @Override
+  public void setTreasures() {
+    GenerationStageEvent event = beginStage(Stage.SET_TREASURES);
+    this.numberOfCavesToAssignTreasure =
+        (int) ((long) this.caveCount * this.percentageOfTreasures / 100);
+    Treasure[] kinds = Treasure.values();
+    int needed = this.numberOfCavesToAssignTreasure;
+    int remaining = this.caveCount;
+    for (int i = 0; i < this.vertices && needed > 0; i++) {
+      if (isCave(i)) {
+        if (r.getInt(remaining) < needed) {
+          int number = r.getInt(3) + 1;
+          int placed = 0;
+          for (int j = 0; j < number; j++) {
+            setBits(i, CellMask.of(kinds[j]));
+            placed = TreasureLedger.add(placed, kinds[j]);
+          }
+          this.treasures.record(placed);
+          needed--;
+        }
+        remaining--;
+      }
+    }
+    event.cavesWithTreasure = this.numberOfCavesToAssignTreasure;
+    commitStage(event);
+  }
+
+  @Override
+  protected int getInterconnectivity() {
+    return this.interconnectivity;
+  }
+
+  /**
+   * Treasure is never taken out of a cave, so the ledger of placed treasure answers this
+   * without a scan.
+   */
+  @Override
+  public int numberOfCavesWithTreasures() {
+    return this.treasures.getEntries();
+  }
+
+  @Override
+  public int treasurePercentageValue() {
+    return this.numberOfCavesToAssignTreasure;
+  }
+
+  /**
+   * The packed directions already are the adjacency of the dungeon, so there is nothing to
+   * build.
+   */
+  @Override
+  public void adjlist() {
+    GenerationStageEvent event = beginStage(Stage.ADJLIST);
+    // The direction bits are read directly by getGraph().
+    commitStage(event);
+  }
+
+  // -------------------------Printing the dungeon--------------------------------------
+
+  @Override
+  public String printPotentialPaths() {
+    if (!this.potentialListed) {
+      return "";
+    }
+    return print(out -> printEdges(out, "", true, true));
+  }
+
+  @Override
+  public void printUniquePath(Appendable out) throws IOException {
+    printEdges(out, "PATH FROM ONE NODE TO EVERYOTHER NODE AFTER KRUSKAL\n", true, false);
+  }
+
+  @Override
+  public void printLeftOverPath(Appendable out) throws IOException {
+    printEdges(out, "LEFTOVER PATHS AFTER RUNNING KRUSKALS ALGORITHM\n", false,
+        this.kruskalDone);
+  }
+}
@@ -0,0 +1,83 @@
+package dungeon;
+
+/**
+ * A counter based random number generator. Every number is a hash of a key and a position,
+ * so any position can be read directly with {@link #getInt(long, int)} without going through
+ * the ones before it. That lets work on a single cell or tile draw its numbers from the id of
+ * the cell, which gives the same result no matter which thread does the work or in what
+ * order.
+ *
+ * <p>{@link #getInt(int)} reads the positions one after the other. Only that method and
+ * {@link #split()} change state, so an instance that is read by position can be shared
+ * between threads.
+ *
+ * @author anush
+ *
+ */
+public class CounterRandom implements RandomInterface {
+
+  private static final long GOLDEN_GAMMA = 0x9E3779B97F4A7C15L;
+
+  private final long key;
+  private long counter;
+
+  /**
+   * Construct a generator from a seed.
+   *
+   * @param seed The seed of the generator.
+   */
+  public CounterRandom(long seed) {
+    this.key = mix(seed);
+  }
+
+  @Override
+  public int getInt(int x) {
+    return getInt(this.counter++, x);
+  }
+
+  /**
+   * Gets the random number at a position of the stream.
+   *
+   * @param position The position, for example the id of a cell.
+   * @param x The range in between which we want the random number.
+   * @return A random number between 0 and x - 1.
+   */
+  public int getInt(long position, int x) {
+    if (x <= 0) {
+      throw new IllegalArgumentException("Bound must be positive");
+    }
+    long base = mix(this.key + GOLDEN_GAMMA * position);
+    long product = (base >>> 32) * x;
+    if ((product & 0xFFFFFFFFL) < x) {
+      // Reject the few values that would make small results more likely.
+      long threshold = (0x100000000L - x) % x;
+      long round = 0;
+      while ((product & 0xFFFFFFFFL) < threshold) {
+        base = mix(base + GOLDEN_GAMMA * ++round);
+        product = (base >>> 32) * x;
+      }
+    }
+    return (int) (product >>> 32);
+  }
+
+  /**
+   * Creates a generator whose stream only depends on this generator's seed and the given id.
+   *
+   * @param id The id of the stream, for example a tile or cell id.
+   * @return A new random number generator.
+   */
+  public CounterRandom stream(long id) {
+    return new CounterRandom(this.key ^ mix(id + GOLDEN_GAMMA));
+  }
+
+  @Override
+  public RandomInterface split() {
+    return stream(this.counter++ ^ Long.MIN_VALUE);
+  }
+
+  private static long mix(long z) {
+    z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+    z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+    return z ^ (z >>> 31);
+  }
+}
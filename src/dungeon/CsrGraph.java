@@ -0,0 +1,95 @@
+package dungeon;
+
+import java.util.List;
+
+/**
+ * An immutable graph stored in compressed sparse row form. The neighbours of node v are
+ * targets[offsets[v]] up to targets[offsets[v + 1] - 1], so walking them is a scan over one
+ * contiguous stretch of an int array with no boxing and no locking.
+ *
+ * @author anush
+ *
+ */
+public final class CsrGraph implements IGraph {
+
+  private final int[] offsets;
+  private final int[] targets;
+
+  private CsrGraph(int[] offsets, int[] targets) {
+    this.offsets = offsets;
+    this.targets = targets;
+  }
+
+  /**
+   * Builds an undirected graph from a list of edges in two passes: the first counts the
+   * degree of every node, the second writes the neighbours into place. The neighbours of a
+   * node keep the order in which their edges were given.
+   *
+   * @param vertices The number of nodes.
+   * @param from The first end point of every edge.
+   * @param to The second end point of every edge.
+   * @param edges The number of edges to read from the two arrays.
+   * @return The graph.
+   */
+  public static CsrGraph fromEdges(int vertices, int[] from, int[] to, int edges) {
+    int[] offsets = new int[vertices + 1];
+    for (int e = 0; e < edges; e++) {
+      offsets[from[e] + 1]++;
+      offsets[to[e] + 1]++;
+    }
+    for (int v = 0; v < vertices; v++) {
+      offsets[v + 1] += offsets[v];
+    }
+
+    int[] fill = new int[vertices];
+    System.arraycopy(offsets, 0, fill, 0, vertices);
+    int[] targets = new int[offsets[vertices]];
+    for (int e = 0; e < edges; e++) {
+      targets[fill[from[e]]++] = to[e];
+      targets[fill[to[e]]++] = from[e];
+    }
+    return new CsrGraph(offsets, targets);
+  }
+
+  /**
+   * Builds a graph from the paths of a dungeon.
+   *
+   * @param vertices The number of nodes.
+   * @param paths The paths between the nodes.
+   * @return The graph.
+   */
+  public static CsrGraph fromPaths(int vertices, List<IPath> paths) {
+    int[] from = new int[paths.size()];
+    int[] to = new int[paths.size()];
+    for (int e = 0; e < from.length; e++) {
+      IPath path = paths.get(e);
+      from[e] = path.getStart().getNid();
+      to[e] = path.getEnd().getNid();
+    }
+    return fromEdges(vertices, from, to, from.length);
+  }
+
+  @Override
+  public int getVertices() {
+    return this.offsets.length - 1;
+  }
+
+  @Override
+  public int getDegree(int v) {
+    return this.offsets[v + 1] - this.offsets[v];
+  }
+
+  @Override
+  public int getNeighbor(int v, int i) {
+    return this.targets[this.offsets[v] + i];
+  }
+
+  /**
+   * Gets the number of edges in the graph.
+   *
+   * @return The number of undirected edges.
+   */
+  public int getEdges() {
+    return this.targets.length / 2;
+  }
+}
@@ -0,0 +1,221 @@
+package dungeon;
+
+import java.util.Arrays;
+
+/**
+ * Computes path lengths between nodes in a dungeon using an iterative breadth first search.
+ * The distance and queue buffers are allocated once and reused for every search, so running
+ * a search from every cave does not create any garbage and cannot overflow the stack on
+ * large dungeons.
+ *
+ * <p>Bounded searches only ever look at a few nodes around their end points, so they keep
+ * their own small buffers that grow with the searched area instead of with the dungeon.
+ *
+ * @author anush
+ *
+ */
+public class DistanceEngine {
+
+  /**
+   * The distance reported for nodes that cannot be reached from the source.
+   */
+  public static final int UNREACHABLE = Integer.MAX_VALUE;
+
+  private static final int SOURCE_SIDE = 1;
+  private static final int TARGET_SIDE = 2;
+
+  private final IGraph graph;
+  private int[] distance;
+  private int[] queue;
+  private int visitedCount;
+  private long visited;
+
+  private int[] sourceQueue;
+  private int[] targetQueue;
+  private int[] seenKeys;
+  private byte[] seenSides;
+  private int seenCount;
+
+  /**
+   * Construct a distance engine for the given graph.
+   *
+   * @param graph The connections of the dungeon.
+   */
+  public DistanceEngine(IGraph graph) {
+    if (graph == null) {
+      throw new IllegalArgumentException("Enter valid inputs");
+    }
+    this.graph = graph;
+  }
+
+  /**
+   * Runs a breadth first search from the source node. The returned array is owned by the
+   * engine and is overwritten by the next call.
+   *
+   * @param source The node id to start from.
+   * @return The length of the shortest path from the source to every node, or
+   *        {@link #UNREACHABLE} if there is no path.
+   */
+  public int[] distancesFrom(int source) {
+    if (this.distance == null) {
+      this.distance = new int[this.graph.getVertices()];
+      this.queue = new int[this.graph.getVertices()];
+      Arrays.fill(this.distance, UNREACHABLE);
+    }
+    for (int i = 0; i < this.visitedCount; i++) {
+      this.distance[this.queue[i]] = UNREACHABLE;
+    }
+
+    int head = 0;
+    int tail = 0;
+    this.distance[source] = 0;
+    this.queue[tail++] = source;
+    while (head < tail) {
+      int u = this.queue[head++];
+      int next = this.distance[u] + 1;
+      int degree = this.graph.getDegree(u);
+      for (int i = 0; i < degree; i++) {
+        int v = this.graph.getNeighbor(u, i);
+        if (this.distance[v] == UNREACHABLE) {
+          this.distance[v] = next;
+          this.queue[tail++] = v;
+        }
+      }
+    }
+    this.visitedCount = tail;
+    this.visited += tail;
+    return this.distance;
+  }
+
+  /**
+   * Checks whether two nodes are at least the given number of steps apart. The search grows
+   * a ball around both nodes, always expanding the smaller frontier, and stops as soon as the
+   * two balls touch or their radii add up to the limit. Nodes that are not connected at all
+   * count as far enough apart.
+   *
+   * @param source The first node id.
+   * @param target The second node id.
+   * @param minDistance The number of steps the nodes must at least be apart.
+   * @return True if the shortest path between the nodes is at least minDistance long.
+   */
+  public boolean isAtLeast(int source, int target, int minDistance) {
+    if (source == target) {
+      return minDistance <= 0;
+    }
+    if (this.seenKeys == null) {
+      this.sourceQueue = new int[16];
+      this.targetQueue = new int[16];
+      this.seenKeys = new int[64];
+      this.seenSides = new byte[64];
+    }
+
+    int sourceHead = 0;
+    int sourceTail = 0;
+    int targetHead = 0;
+    int targetTail = 0;
+    this.sourceQueue[sourceTail++] = source;
+    this.targetQueue[targetTail++] = target;
+    mark(source, SOURCE_SIDE);
+    mark(target, TARGET_SIDE);
+
+    boolean result = true;
+    int radius = 0;
+    search:
+    while (radius < minDistance - 1) {
+      if (sourceHead == sourceTail || targetHead == targetTail) {
+        break;
+      }
+      boolean expandSource = sourceTail - sourceHead <= targetTail - targetHead;
+      int side = expandSource ? SOURCE_SIDE : TARGET_SIDE;
+      int head = expandSource ? sourceHead : targetHead;
+      int tail = expandSource ? sourceTail : targetTail;
+      int levelEnd = tail;
+
+      while (head < levelEnd) {
+        int u = expandSource ? this.sourceQueue[head++] : this.targetQueue[head++];
+        int degree = this.graph.getDegree(u);
+        for (int i = 0; i < degree; i++) {
+          int v = this.graph.getNeighbor(u, i);
+          int seen = sideOf(v);
+          if (seen != 0 && seen != side) {
+            result = false;
+            break search;
+          }
+          if (seen == 0) {
+            mark(v, side);
+            if (expandSource) {
+              this.sourceQueue = push(this.sourceQueue, tail++, v);
+            } else {
+              this.targetQueue = push(this.targetQueue, tail++, v);
+            }
+          }
+        }
+      }
+
+      if (expandSource) {
+        sourceHead = head;
+        sourceTail = tail;
+      } else {
+        targetHead = head;
+        targetTail = tail;
+      }
+      radius++;
+    }
+
+    Arrays.fill(this.seenKeys, 0);
+    this.visited += this.seenCount;
+    this.seenCount = 0;
+    return result;
+  }
+
+  /**
+   * Gets the number of nodes all searches of this engine have reached so far.
+   *
+   * @return The number of nodes, counted once per search that reached them.
+   */
+  public long getVisited() {
+    return this.visited;
+  }
+
+  private static int[] push(int[] queue, int index, int value) {
+    if (index == queue.length) {
+      queue = Arrays.copyOf(queue, queue.length * 2);
+    }
+    queue[index] = value;
+    return queue;
+  }
+
+  private int slot(int v) {
+    int mask = this.seenKeys.length - 1;
+    int i = (v * 0x9E3779B9) & mask;
+    while (this.seenKeys[i] != 0 && this.seenKeys[i] != v + 1) {
+      i = (i + 1) & mask;
+    }
+    return i;
+  }
+
+  private int sideOf(int v) {
+    int i = slot(v);
+    return this.seenKeys[i] == 0 ? 0 : this.seenSides[i];
+  }
+
+  private void mark(int v, int side) {
+    if (2 * (this.seenCount + 1) > this.seenKeys.length) {
+      int[] oldKeys = this.seenKeys;
+      byte[] oldSides = this.seenSides;
+      this.seenKeys = new int[oldKeys.length * 2];
+      this.seenSides = new byte[oldKeys.length * 2];
+      for (int i = 0; i < oldKeys.length; i++) {
+        if (oldKeys[i] != 0) {
+          int j = slot(oldKeys[i] - 1);
+          this.seenKeys[j] = oldKeys[i];
+          this.seenSides[j] = oldSides[i];
+        }
+      }
+    }
+    int i = slot(v);
+    this.seenKeys[i] = v + 1;
+    this.seenSides[i] = (byte) side;
+    this.seenCount++;
+  }
+}
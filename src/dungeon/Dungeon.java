@@ -1,9 +1,10 @@
 package dungeon;
 
+import java.io.IOException;
 import java.util.ArrayList;
-import java.util.Arrays;
+import java.util.Collections;
 import java.util.List;
-import java.util.Vector;
+import java.util.concurrent.ForkJoinPool;
 
 /**
  * The dungeon class that implements the IDungeon interface. A dungeon is like a maze where there
@@ -14,19 +15,16 @@ import java.util.Vector;
  * @author anush
  *
  */
-public class Dungeon implements IDungeon {
+public class Dungeon extends AbstractDungeon {
 
-  private final int rows;
-  private final int cols;
-  private final boolean isWrapping;
   private final int interconnectivity;
   private int count;
   private int vertices;
   private final int percentageOfTreasures;
-  private int startEndPath;
 
   private int numberOfCavesToAssignTreasure;
   private int[] parent;
+  private int[] setSize;
   private Node[][] dungeon;
   private List<INode> allNodes;
   private List<INode> caveList;
@@ -34,12 +32,9 @@ public class Dungeon implements IDungeon {
   private List<IPath> uniquePath;
   private List<IPath> leftOverPaths;
   // private List<List<INode>> adjacencyList;
-  private List<IPath> startEnd;
-  private Vector<Integer>[] adj;
-  private RandomInterface r;
-  private int minPath;
-  private int pCount;
-  private IPlayer player;
+  private CsrGraph adj;
+  private final TreasureLedger treasures;
+  private boolean wrapEdges;
 
 
   /**
@@ -56,57 +51,59 @@ public class Dungeon implements IDungeon {
    */
   public Dungeon(int rows, int cols, boolean isWrapping, int interconnectivity,
       int percentageOfTreasure, RandomInterface r) {
-    this.rows = rows;
-    this.cols = cols;
-    this.isWrapping = isWrapping;
+    this(rows, cols, isWrapping, interconnectivity, percentageOfTreasure, r,
+        StartEndSelection.EXHAUSTIVE);
+  }
+
+  /**
+   * A constructor to create a dungeon that picks the start and end caves in the given way.
+   * With {@link StartEndSelection#SAMPLED} the dungeon draws random cave pairs until it finds
+   * one that is far enough apart, instead of listing every such pair up front.
+   *
+   * @param rows Number of rows we want in a dungeon.
+   * @param cols Number of columns we want in a dungeon.
+   * @param isWrapping A boolean value that decides whether the dungeon is wrapping or non-wrapping.
+   * @param interconnectivity The number of extra connections we want in a dungeon.
+   * @param percentageOfTreasure The amount of treasure that needs to be randomly placed in the
+   *        dungeon.
+   * @param r This is a parameter for randomness. It is used for implementation and testing.
+   * @param selection How the start and end caves of the player are picked.
+   */
+  public Dungeon(int rows, int cols, boolean isWrapping, int interconnectivity,
+      int percentageOfTreasure, RandomInterface r, StartEndSelection selection) {
+    super(rows, cols, isWrapping, r, selection);
     this.interconnectivity = interconnectivity;
     this.percentageOfTreasures = percentageOfTreasure;
     this.vertices = this.cols * this.rows;
     this.parent = new int[this.vertices];
+    this.setSize = new int[this.vertices];
     this.allNodes = new ArrayList<>();
     dungeon = new Node[this.rows][this.cols];
     potentialPaths = new ArrayList<>();
     uniquePath = new ArrayList<>();
     caveList = new ArrayList<>();
     leftOverPaths = new ArrayList<>();
+    treasures = new TreasureLedger();
     // adjacencyList = new LinkedList<>();
-    startEnd = new ArrayList<>();
-    this.r = r;
-
-    adj = new Vector[this.vertices];
-
-    for (int i = 0; i < this.vertices; i++) {
-      adj[i] = new Vector<>();
-    }
-  }
-
-  @Override
-  public int getRows() {
-    return this.rows;
-  }
 
-  @Override
-  public int getCols() {
-    return this.cols;
-  }
-
-  @Override
-  public boolean getIsWrapping() {
-    return this.isWrapping;
+    adj = CsrGraph.fromEdges(this.vertices, new int[0], new int[0], 0);
   }
 
   @Override
   public void createDungeon() {
+    GenerationStageEvent event = beginStage(Stage.CREATE_DUNGEON);
     for (int i = 0; i < this.rows; i++) {
       for (int j = 0; j < this.cols; j++) {
         dungeon[i][j] = new Node(i, j, count++);
         this.allNodes.add(this.dungeon[i][j]);
       }
     }
+    commitStage(event);
   }
 
   @Override
   public void potentialPaths() {
+    GenerationStageEvent event = beginStage(Stage.POTENTIAL_PATHS);
     for (int i = 0; i < this.rows; i++) {
       for (int j = 0; j < this.cols; j++) {
         Node nodeOg = dungeon[i][j];
@@ -120,43 +117,106 @@ public class Dungeon implements IDungeon {
         }
       }
     }
+    commitStage(event);
   }
 
   @Override
   public void wrappingPotentialPath() {
+    GenerationStageEvent event = beginStage(Stage.WRAPPING_POTENTIAL_PATH);
+    this.wrapEdges = true;
     for (int i = 0; i < this.rows; i++) {
       this.potentialPaths.add(IPath.formEdges(dungeon[i][this.cols - 1], dungeon[i][0]));
     }
     for (int j = 0; j < this.cols; j++) {
       this.potentialPaths.add(IPath.formEdges(dungeon[this.rows - 1][j], dungeon[0][j]));
     }
+    commitStage(event);
   }
 
   @Override
   public void kruskalAlgorithms() {
+    GenerationStageEvent event = beginStage(Stage.KRUSKAL_ALGORITHMS);
     makeSet(parent);
 
+    // Edges are drawn through an in-place Fisher-Yates shuffle of their ids, so every draw is
+    // constant time and no edge is drawn twice. The endpoints are copied into primitive arrays
+    // first so the union-find loop never has to chase path and node objects.
+    int edges = this.potentialPaths.size();
+    int[] order = new int[edges];
+    int[] from = new int[edges];
+    int[] to = new int[edges];
+    for (int i = 0; i < edges; i++) {
+      IPath edge = this.potentialPaths.get(i);
+      order[i] = i;
+      from[i] = edge.getStart().getNid();
+      to[i] = edge.getEnd().getNid();
+    }
+
     int index = 0;
-    while (index < vertices - 1) {
-      IPath edge = this.potentialPaths.get(r.getInt(this.potentialPaths.size()));
-      int x_set = find(parent, edge.getStart().getNid());
-      int y_set = find(parent, edge.getEnd().getNid());
+    int drawn = 0;
+    while (index < vertices - 1 && drawn < edges) {
+      int pick = drawn + r.getInt(edges - drawn);
+      int id = order[pick];
+      order[pick] = order[drawn];
+      order[drawn++] = id;
+
+      int x_set = find(parent, from[id]);
+      int y_set = find(parent, to[id]);
 
       if (x_set == y_set) {
-        this.leftOverPaths.add(edge);
+        this.leftOverPaths.add(this.potentialPaths.get(id));
       } else {
-        uniquePath.add(edge);
+        uniquePath.add(this.potentialPaths.get(id));
         index++;
         union(parent, x_set, y_set);
       }
-      this.potentialPaths.remove(edge);
     }
-    this.leftOverPaths.addAll(this.potentialPaths);
+    for (int i = drawn; i < edges; i++) {
+      this.leftOverPaths.add(this.potentialPaths.get(order[i]));
+    }
     this.potentialPaths.clear();
+    event.edgesDrawn = drawn;
+    event.edgesRejected = drawn - index;
+    commitStage(event);
+  }
+
+  @Override
+  public void parallelKruskalAlgorithms(ForkJoinPool pool) {
+    GenerationStageEvent event = beginStage(Stage.PARALLEL_KRUSKAL_ALGORITHMS);
+    // Like the sequential algorithm, only use the wrapping edges if they were listed.
+    TiledSpanningForest forest = new TiledSpanningForest(this.rows, this.cols, this.wrapEdges,
+        TiledSpanningForest.DEFAULT_TILE_SIZE);
+    long[] open = new long[(2 * this.vertices + 63) >>> 6];
+    forest.build(pool, r, open);
+
+    for (int i = 0; i < this.rows; i++) {
+      for (int j = 0; j < this.cols; j++) {
+        int edge = 2 * (i * this.cols + j);
+        if (i + 1 < this.rows || this.wrapEdges) {
+          IPath path = IPath.formEdges(dungeon[i][j], dungeon[(i + 1) % this.rows][j]);
+          ((open[edge >>> 6] & (1L << edge)) != 0 ? uniquePath : leftOverPaths).add(path);
+        }
+        edge++;
+        if (j + 1 < this.cols || this.wrapEdges) {
+          IPath path = IPath.formEdges(dungeon[i][j], dungeon[i][(j + 1) % this.cols]);
+          ((open[edge >>> 6] & (1L << edge)) != 0 ? uniquePath : leftOverPaths).add(path);
+        }
+      }
+    }
+    // The leftovers were listed in grid order, but addInterconnectivity takes them from the
+    // front like the random order the sequential algorithm leaves them in, so shuffle them.
+    for (int i = this.leftOverPaths.size() - 1; i > 0; i--) {
+      Collections.swap(this.leftOverPaths, i, r.getInt(i + 1));
+    }
+    this.potentialPaths.clear();
+    event.edgesDrawn = forest.getValidEdges();
+    event.edgesRejected = this.leftOverPaths.size();
+    commitStage(event);
   }
 
   @Override
   public void addInterconnectivity() {
+    GenerationStageEvent event = beginStage(Stage.ADD_INTERCONNECTIVITY);
     List<IPath> tempLeftOver = new ArrayList<>();
     tempLeftOver.addAll(leftOverPaths);
     int tempInterConnectivity = this.interconnectivity;
@@ -174,10 +234,12 @@ public class Dungeon implements IDungeon {
         tempLeftOver.remove(edge);
       }
     }
+    commitStage(event);
   }
 
   @Override
   public void updateDirections() {
+    GenerationStageEvent event = beginStage(Stage.UPDATE_DIRECTIONS);
     for (IPath p : this.uniquePath) {
       if (p.getStart().getRow() == p.getEnd().getRow()) {
         p.getStart().setEast();
@@ -192,17 +254,21 @@ public class Dungeon implements IDungeon {
         p.getEnd().setCount();
       }
     }
+    commitStage(event);
   }
 
   @Override
   public void setLocationType() {
+    GenerationStageEvent event = beginStage(Stage.SET_LOCATION_TYPE);
     for (INode n : allNodes) {
       n.setType();
     }
+    commitStage(event);
   }
 
   @Override
   public void setTreasures() {
+    GenerationStageEvent event = beginStage(Stage.SET_TREASURES);
     int shuffleCave;
     for (INode n : allNodes) {
       if (n.getType() == LocationType.CAVE) {
@@ -225,23 +291,31 @@ public class Dungeon implements IDungeon {
 
       shuffleCave = r.getInt(tempCaveList.size());
       int number = r.getInt(3) + 1;
+      int placed = 0;
       for (int j = 0; j < number; j++) {
         // int abc = r.getInt(3);
         tempCaveList.get(shuffleCave).setTreasure(listOfTreasures.get(j));
+        placed = TreasureLedger.add(placed, listOfTreasures.get(j));
       }
+      this.treasures.record(placed);
       tempCaveList.remove(shuffleCave);
     }
+    event.cavesWithTreasure = this.numberOfCavesToAssignTreasure;
+    commitStage(event);
   }
 
+  /**
+   * Treasure is never taken out of a node, so every cave that was given treasure still has
+   * it and the ledger of placed treasure answers this without a scan.
+   */
   @Override
   public int numberOfCavesWithTreasures() {
-    int count = 0;
-    for (INode n : this.caveList) {
-      if (n.getTreasures().size() > 0) {
-        count++;
-      }
-    }
-    return count;
+    return this.treasures.getEntries();
+  }
+
+  @Override
+  protected int getInterconnectivity() {
+    return this.interconnectivity;
   }
 
   @Override
@@ -258,211 +332,49 @@ public class Dungeon implements IDungeon {
 
   @Override
   public void adjlist() {
-    for (IPath path : this.uniquePath) {
-      adj[path.getStart().getNid()].add(path.getEnd().getNid());
-      adj[path.getEnd().getNid()].add(path.getStart().getNid());
-    }
+    GenerationStageEvent event = beginStage(Stage.ADJLIST);
+    adj = CsrGraph.fromPaths(this.vertices, this.uniquePath);
+    commitStage(event);
   }
 
   @Override
-  public void minFivePath() {
-
-    List<Integer> tempV = new ArrayList<>();
-
-    for (INode n : this.allNodes) {
-      if (n.getType() == LocationType.CAVE) {
-        tempV.add(n.getNid());
-      }
-    }
-
-    for (int k = 0; k < tempV.size(); k++) {
-      for (int j = 0; j < tempV.size(); j++) {
-
-        boolean[] visited = new boolean[this.vertices];
-        Arrays.fill(visited, false);
-
-        minPath = Integer.MAX_VALUE;
-        pCount = 0;
-
-        int u = tempV.get(k);
-        int v = tempV.get(j);
-        minFivePathHelper(visited, u, v);
-
-        if (minPath >= 5) {
-          IPath path = new Path(allNodes.get(u), allNodes.get(v));
-          startEnd.add(path);
-        }
-      }
-    }
-  }
-
-  private void minFivePathHelper(boolean[] visited, int src, int des) {
-    visited[src] = true;
-
-    if (src == des) {
-      if (minPath > pCount) {
-        minPath = pCount;
-      }
-    }
-
-    else {
-      for (int i : adj[src]) {
-        int v = i;
-
-        if (!visited[v]) {
-          pCount++;
-          minFivePathHelper(visited, v, des);
-        }
-      }
-    }
-
-    visited[src] = false;
-    pCount--;
+  protected INode getNode(int nid) {
+    return this.allNodes.get(nid);
   }
 
   @Override
-  public void setStartEnd() {
-    this.minFivePath();
+  protected boolean isCave(int nid) {
+    return this.allNodes.get(nid).getType() == LocationType.CAVE;
   }
 
-  // -------------------------Moving the player--------------------------------------
-
   @Override
-  public String setPlayerStartAndEnd() {
-    // Collections.shuffle(this.startEnd);
-    startEndPath = r.getInt(this.startEnd.size());
-    StringBuilder sb = new StringBuilder();
-
-    sb.append("MY START LOCATION: " + this.startEnd.get(startEndPath).getStart().getNid() + "\n");
-    sb.append("MY END LOCATION: " + this.startEnd.get(startEndPath).getEnd().getNid() + "\n");
-    // sb.append("Directions Available: " + this.startEnd.get(0).getStart().directionsOfNode());
-
-    player = new Player(this.startEnd.get(startEndPath).getStart(), this.rows, this.cols);
-
-    if (this.startEnd.get(startEndPath).getStart().getTreasures().size() > 0) {
-      player.setPickedTreasures(this.startEnd.get(startEndPath).getStart().getTreasures());
-      sb.append(this.startEnd.get(startEndPath).getStart().getTreasures().toString());
-    }
-    player.setAllNodes(this.allNodes);
-    return sb.toString();
-  }
-
-  @Override
-  public List<IPath> getStartEnd() {
-    return new ArrayList<>(this.startEnd);
-  }
-
-  @Override
-  public int getStartEndpath() {
-    return this.startEndPath;
-  }
-
-  @Override
-  public String possibleMovements() {
-    StringBuilder sb = new StringBuilder();
-    sb.append("CHOOSE A DIRECTION\n");
-    sb.append(player.getCurrent().possibleDirections().toString());
-    return sb.toString();
-  }
-
-  @Override
-  public String playerDetails() {
-    StringBuilder sb = new StringBuilder();
-    sb.append("The player is currently at location: " + player.getCurrent().getNid() + "\n");
-    if (player.getAllPickedTreasures().size() == 0) {
-      sb.append("The player has not collected any treasures so far.");
-    } else {
-      sb.append("The Treasures collected so far by the player are: \n");
-      sb.append(player.getAllPickedTreasures().toString() + "\n");
-    }
-    return sb.toString();
-  }
-
-  @Override
-  public String playerLocationDetails() {
-    StringBuilder sb = new StringBuilder();
-    sb.append("Available directions from Node " + player.getCurrent().getNid() + " are:\n");
-    sb.append(player.getCurrent().possibleDirections().toString() + "\n");
-    if (player.getCurrent().getTreasures().size() == 0) {
-      sb.append("There are no Treasures in this location\n");
-    } else {
-      sb.append("The Treasures available at Node " + player.getCurrent().getNid() + " are:\n");
-      sb.append(player.getCurrent().getTreasures().toString() + "\n");
-    }
-    return sb.toString();
-  }
-
-  @Override
-  public String playerMovement(int move) {
-    if (move > player.getCurrent().possibleDirections().size() || move < 1) {
-      return String.format("Enter valid direction\n");
-    }
-    StringBuilder sb = new StringBuilder();
-    int m = move;
-
-    List<Directions> tempAvailableDirections = player.getCurrent().possibleDirections();
-
-    // sb.append(tempAvailableDirections.toString());
-
-    Directions temp = tempAvailableDirections.get(m - 1);
-    sb.append(player.move(temp));
-    sb.append("\n-------------------------------------------"
-        + "--------------------------------------------\n");
-
-    return sb.toString();
+  protected IGraph getGraph() {
+    return adj;
   }
 
   @Override
-  public String gameEnded() {
-    StringBuilder sb = new StringBuilder();
-    sb.append(player.getAllPickedTreasures().toString() + "\n");
-    sb.append("GAME ENDED");
-
-    return sb.toString();
+  protected List<INode> getAllNodes() {
+    return this.allNodes;
   }
 
   @Override
-  public boolean hasEnded() {
-    return this.startEnd.get(startEndPath).getEnd().getNid() != player.getCurrent().getNid();
+  public void printUniquePath(Appendable out) throws IOException {
+    printPaths(out, "PATH FROM ONE NODE TO EVERYOTHER NODE AFTER KRUSKAL\n", this.uniquePath);
   }
 
-
   @Override
-  public String printUniquePath() {
-    String printUniquePaths = "";
-    StringBuilder sb = new StringBuilder();
-    sb.append("PATH FROM ONE NODE TO EVERYOTHER NODE AFTER KRUSKAL\n");
-    for (IPath p : this.uniquePath) {
-      printUniquePaths = String.format(p.toString());
-      sb.append(printUniquePaths + "\n");
-    }
-    return sb.toString();
+  public void printLeftOverPath(Appendable out) throws IOException {
+    printPaths(out, "LEFTOVER PATHS AFTER RUNNING KRUSKALS ALGORITHM\n", this.leftOverPaths);
   }
 
-  @Override
-  public String printLeftOverPath() {
-    String printLeftOverPaths = "";
-    StringBuilder sb = new StringBuilder();
-    sb.append("LEFTOVER PATHS AFTER RUNNING KRUSKALS ALGORITHM\n");
-    for (IPath p : this.leftOverPaths) {
-      printLeftOverPaths = String.format(p.toString());
-      sb.append(printLeftOverPaths + "\n");
+  private static void printPaths(Appendable out, String title, List<IPath> paths)
+      throws IOException {
+    RowBuffer buffer = new RowBuffer(64);
+    buffer.append(title);
+    for (IPath p : paths) {
+      buffer.append(p.toString()).append('\n').flushIfFull(out);
     }
-    return sb.toString();
-  }
-
-  @Override
-  public String printDungeon() {
-    String printDungeon = "";
-    StringBuilder sb = new StringBuilder();
-    sb.append("ALL THE NODES IN A DUNGEON JUST AFTER ITS CONSTRUCTION\n");
-    for (int i = 0; i < rows; i++) {
-      for (int j = 0; j < cols; j++) {
-        printDungeon = String.format(dungeon[i][j].toString());
-        sb.append(printDungeon + "\n");
-      }
-    }
-    return sb.toString();
+    buffer.flush(out);
   }
 
   @Override
@@ -476,35 +388,17 @@ public class Dungeon implements IDungeon {
     return sb.toString();
   }
 
-  @Override
-  public String printPotentialPathsDirections() {
-    String printDungeon = "";
-    StringBuilder sb = new StringBuilder();
-    sb.append("ALL THE NODES IN DUNGEON AFTER KRUSKAL AND ADDING "
-        + "INTERCONNCETIVITY ALONG WITH POSSIBLE DIRECTIONS AND TREASURES\n");
-    for (int i = 0; i < rows; i++) {
-      for (int j = 0; j < cols; j++) {
-        printDungeon = String
-            .format("\nNODE: " + dungeon[i][j].getNid() + "\n" + "Possible Directions: "
-                + dungeon[i][j].directionsOfNode() + "\n" + "Location type of Node: "
-                + dungeon[i][j].locationOfNode())
-            + "\n" + "-------------------------------------------"
-            + "-----------------------------------------------";
-        sb.append(printDungeon + "\n");
-      }
-    }
-    return sb.toString();
-  }
-
   private void makeSet(int[] parent) {
     for (int i = 0; i < vertices; i++) {
       parent[i] = i;
+      setSize[i] = 1;
     }
   }
 
   private int find(int[] parent, int vertex) {
-    if (parent[vertex] != vertex) {
-      return find(parent, parent[vertex]);
+    while (parent[vertex] != vertex) {
+      parent[vertex] = parent[parent[vertex]];
+      vertex = parent[vertex];
     }
     return vertex;
   }
@@ -512,58 +406,13 @@ public class Dungeon implements IDungeon {
   private void union(int[] parent, int x, int y) {
     int x_set_parent = find(parent, x);
     int y_set_parent = find(parent, y);
-    parent[y_set_parent] = x_set_parent;
-  }
-
-  @Override
-  public String displayDungeon() {
-    StringBuilder sb = new StringBuilder();
-
-    for (int i = 0; i < this.rows; i++) {
-      for (int k = 0; k < 3; k++) {
-        for (int j = 0; j < this.cols; j++) {
-          INode temp = dungeon[i][j];
-          if (k == 0) {
-            if (temp.getNorth()) {
-              sb.append("  ").append("|").append("   ");
-            } else {
-              sb.append("      ");
-            }
-          } else if (k == 1) {
-            if (temp.getWest()) {
-              sb.append("- ");
-            } else {
-              sb.append("  ");
-            }
-            if (temp.getType() == LocationType.CAVE) {
-              if (temp.getNid() < 10) {
-                sb.append(" ").append(temp.getNid());
-              } else {
-                sb.append(temp.getNid());
-              }
-            } else {
-              sb.append("T ");
-            }
-            if (temp.getEast()) {
-              sb.append(" -");
-            } else {
-              sb.append("  ");
-            }
-          } else {
-            if (temp.getSouth()) {
-              sb.append("  ").append("|").append("   ");
-            } else {
-              sb.append("      ");
-            }
-          }
-          sb.append(" ");
-        }
-        sb.append("\n");
-      }
-      sb.append("\n");
+    if (setSize[x_set_parent] < setSize[y_set_parent]) {
+      int temp = x_set_parent;
+      x_set_parent = y_set_parent;
+      y_set_parent = temp;
     }
-
-    return sb.toString();
+    parent[y_set_parent] = x_set_parent;
+    setSize[x_set_parent] += setSize[y_set_parent];
   }
 
   // @Override
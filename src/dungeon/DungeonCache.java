@@ -0,0 +1,216 @@
+package dungeon;
+
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.FutureTask;
+import java.util.function.Function;
+
+/**
+ * Keeps finished dungeons so the same parameters are only generated once. Every entry is the
+ * {@link DungeonTopology} of the dungeon, including its start and end, which never changes.
+ * A request returns a new {@link MappedDungeon} on the stored topology, so callers share the
+ * layout but each get a player and collected treasures of their own.
+ *
+ * <p>Entries are dropped least recently used first once their total size goes over the
+ * budget. When several threads ask for a dungeon that is not stored yet, the first one builds
+ * it and the others wait for that result instead of building it again.
+ *
+ * @author anush
+ *
+ */
+public class DungeonCache {
+
+  private final long maxBytes;
+  private final Function<DungeonKey, IDungeon> factory;
+  private final LinkedHashMap<DungeonKey, DungeonTopology> entries;
+  private final Map<DungeonKey, FutureTask<DungeonTopology>> pending;
+  private long bytes;
+  private long hits;
+  private long misses;
+  private long coalesced;
+  private long evictions;
+
+  /**
+   * Construct a cache that builds every dungeon as a {@link Dungeon} seeded from the key.
+   *
+   * @param maxBytes The most bytes of dungeon data to keep.
+   */
+  public DungeonCache(long maxBytes) {
+    this(maxBytes, key -> new Dungeon(key.getRows(), key.getCols(), key.getIsWrapping(),
+        key.getInterconnectivity(), key.getPercentageOfTreasure(),
+        new SeededRandom(key.getSeed()), StartEndSelection.SAMPLED));
+  }
+
+  /**
+   * Construct a cache with a custom way to create dungeons. The factory only has to create
+   * the dungeon; the cache runs every building step and picks the start and end.
+   *
+   * @param maxBytes The most bytes of dungeon data to keep.
+   * @param factory Creates an unbuilt dungeon for a key.
+   */
+  public DungeonCache(long maxBytes, Function<DungeonKey, IDungeon> factory) {
+    if (maxBytes < 0 || factory == null) {
+      throw new IllegalArgumentException("Enter valid inputs");
+    }
+    this.maxBytes = maxBytes;
+    this.factory = factory;
+    this.entries = new LinkedHashMap<>(16, 0.75f, true);
+    this.pending = new HashMap<>();
+  }
+
+  /**
+   * Gets the dungeon for a key, building it if it is not stored.
+   *
+   * @param key The parameters of the dungeon.
+   * @return A fresh view of the finished dungeon. Its start and end are stored with it, so
+   *         {@link IDungeon#setPlayerStartAndEnd()} is the only step left before playing.
+   */
+  public IDungeon get(DungeonKey key) {
+    if (key == null) {
+      throw new IllegalArgumentException("Enter valid inputs");
+    }
+    FutureTask<DungeonTopology> task;
+    boolean owner = false;
+    synchronized (this) {
+      DungeonTopology stored = this.entries.get(key);
+      if (stored != null) {
+        this.hits++;
+        return view(key, stored);
+      }
+      task = this.pending.get(key);
+      if (task == null) {
+        this.misses++;
+        task = new FutureTask<>(() -> generate(key));
+        this.pending.put(key, task);
+        owner = true;
+      } else {
+        this.coalesced++;
+      }
+    }
+
+    if (owner) {
+      task.run();
+      finish(key, task);
+    }
+    DungeonTopology topology;
+    try {
+      topology = task.get();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new IllegalStateException("Interrupted while waiting for " + key, e);
+    } catch (ExecutionException e) {
+      Throwable cause = e.getCause();
+      if (cause instanceof RuntimeException) {
+        throw (RuntimeException) cause;
+      }
+      throw new IllegalStateException("Could not build " + key, cause);
+    }
+    return view(key, topology);
+  }
+
+  /**
+   * Stores a finished build in the same step that removes it from the pending builds, so no
+   * request can miss both and build the dungeon a second time.
+   */
+  private synchronized void finish(DungeonKey key, FutureTask<DungeonTopology> task) {
+    this.pending.remove(key);
+    try {
+      store(key, task.get());
+    } catch (InterruptedException | ExecutionException e) {
+      // The build failed. Every waiting request sees the failure from the task itself.
+    }
+  }
+
+  private DungeonTopology generate(DungeonKey key) {
+    IDungeon d = this.factory.apply(key);
+    d.createDungeon();
+    d.potentialPaths();
+    if (d.getIsWrapping()) {
+      d.wrappingPotentialPath();
+    }
+    d.kruskalAlgorithms();
+    d.addInterconnectivity();
+    d.updateDirections();
+    d.setLocationType();
+    d.setTreasures();
+    d.adjlist();
+    d.setStartEnd();
+    d.setPlayerStartAndEnd();
+    return DungeonTopology.of(d);
+  }
+
+  private void store(DungeonKey key, DungeonTopology topology) {
+    if (topology.getSize() > this.maxBytes) {
+      return;
+    }
+    this.entries.put(key, topology);
+    this.bytes += topology.getSize();
+    Iterator<DungeonTopology> eldest = this.entries.values().iterator();
+    while (this.bytes > this.maxBytes) {
+      this.bytes -= eldest.next().getSize();
+      eldest.remove();
+      this.evictions++;
+    }
+  }
+
+  private IDungeon view(DungeonKey key, DungeonTopology topology) {
+    return new MappedDungeon(topology, new SeededRandom(key.getSeed()));
+  }
+
+  /**
+   * Gets the number of requests that found their dungeon stored.
+   *
+   * @return The number of hits.
+   */
+  public synchronized long getHits() {
+    return this.hits;
+  }
+
+  /**
+   * Gets the number of requests that had to build their dungeon.
+   *
+   * @return The number of misses.
+   */
+  public synchronized long getMisses() {
+    return this.misses;
+  }
+
+  /**
+   * Gets the number of requests that waited for another request to build the same dungeon.
+   *
+   * @return The number of coalesced requests.
+   */
+  public synchronized long getCoalesced() {
+    return this.coalesced;
+  }
+
+  /**
+   * Gets the number of dungeons dropped to stay within the budget.
+   *
+   * @return The number of evictions.
+   */
+  public synchronized long getEvictions() {
+    return this.evictions;
+  }
+
+  /**
+   * Gets the number of bytes of dungeon data currently kept.
+   *
+   * @return The size of all stored dungeons.
+   */
+  public synchronized long getBytes() {
+    return this.bytes;
+  }
+
+  /**
+   * Gets the number of dungeons currently kept.
+   *
+   * @return The number of stored dungeons.
+   */
+  public synchronized int size() {
+    return this.entries.size();
+  }
+}
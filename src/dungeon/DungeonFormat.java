@@ -0,0 +1,60 @@
+package dungeon;
+
+import java.io.DataOutput;
+import java.io.IOException;
+
+/**
+ * The layout of a dungeon written to a file or stream. A fixed size header is followed by
+ * one byte per node, row by row, packed as described in {@link CellMask}. All numbers are
+ * written big-endian.
+ *
+ * <pre>
+ * int magic       'DUNG'
+ * int version
+ * int rows
+ * int cols
+ * int flags       bit 0 set for a wrapping dungeon
+ * int start       start node id, or -1 if none was chosen
+ * int end         end node id, or -1 if none was chosen
+ * byte[rows * cols] cells
+ * </pre>
+ *
+ * <p>Dungeons are written with {@link IDungeon#writeTo} or
+ * {@link StreamingDungeonGenerator} and read back with {@link MappedDungeon}.
+ *
+ * @author anush
+ *
+ */
+public final class DungeonFormat {
+
+  public static final int MAGIC = 0x44554E47;
+  public static final int VERSION = 1;
+  public static final int HEADER_BYTES = 28;
+  public static final int FLAG_WRAPPING = 1;
+  public static final int NO_NODE = -1;
+
+  private DungeonFormat() {
+  }
+
+  /**
+   * Writes the header of a dungeon.
+   *
+   * @param out Where to write to.
+   * @param rows Number of rows in the dungeon.
+   * @param cols Number of columns in the dungeon.
+   * @param isWrapping Whether the dungeon is wrapping.
+   * @param start The start node id or {@link #NO_NODE}.
+   * @param end The end node id or {@link #NO_NODE}.
+   * @throws IOException If writing fails.
+   */
+  public static void writeHeader(DataOutput out, int rows, int cols, boolean isWrapping,
+      int start, int end) throws IOException {
+    out.writeInt(MAGIC);
+    out.writeInt(VERSION);
+    out.writeInt(rows);
+    out.writeInt(cols);
+    out.writeInt(isWrapping ? FLAG_WRAPPING : 0);
+    out.writeInt(start);
+    out.writeInt(end);
+  }
+}
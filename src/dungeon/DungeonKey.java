@@ -0,0 +1,95 @@
+package dungeon;
+
+/**
+ * The full set of parameters that decides what a generated dungeon looks like. Two keys
+ * that are equal always describe the same dungeon.
+ *
+ * @author anush
+ *
+ */
+public final class DungeonKey {
+
+  private final int rows;
+  private final int cols;
+  private final boolean isWrapping;
+  private final int interconnectivity;
+  private final int percentageOfTreasure;
+  private final long seed;
+
+  /**
+   * Construct a key.
+   *
+   * @param rows Number of rows we want in a dungeon.
+   * @param cols Number of columns we want in a dungeon.
+   * @param isWrapping A boolean value that decides whether the dungeon is wrapping or non-wrapping.
+   * @param interconnectivity The number of extra connections we want in a dungeon.
+   * @param percentageOfTreasure The amount of treasure that needs to be randomly placed in the
+   *        dungeon.
+   * @param seed The seed of the randomness used to build the dungeon.
+   */
+  public DungeonKey(int rows, int cols, boolean isWrapping, int interconnectivity,
+      int percentageOfTreasure, long seed) {
+    if (rows < 1 || cols < 1 || interconnectivity < 0 || percentageOfTreasure < 0
+        || percentageOfTreasure > 100) {
+      throw new IllegalArgumentException("Enter valid inputs");
+    }
+    this.rows = rows;
+    this.cols = cols;
+    this.isWrapping = isWrapping;
+    this.interconnectivity = interconnectivity;
+    this.percentageOfTreasure = percentageOfTreasure;
+    this.seed = seed;
+  }
+
+  public int getRows() {
+    return this.rows;
+  }
+
+  public int getCols() {
+    return this.cols;
+  }
+
+  public boolean getIsWrapping() {
+    return this.isWrapping;
+  }
+
+  public int getInterconnectivity() {
+    return this.interconnectivity;
+  }
+
+  public int getPercentageOfTreasure() {
+    return this.percentageOfTreasure;
+  }
+
+  public long getSeed() {
+    return this.seed;
+  }
+
+  @Override
+  public boolean equals(Object o) {
+    if (!(o instanceof DungeonKey)) {
+      return false;
+    }
+    DungeonKey other = (DungeonKey) o;
+    return this.rows == other.rows && this.cols == other.cols
+        && this.isWrapping == other.isWrapping
+        && this.interconnectivity == other.interconnectivity
+        && this.percentageOfTreasure == other.percentageOfTreasure && this.seed == other.seed;
+  }
+
+  @Override
+  public int hashCode() {
+    int hash = this.rows;
+    hash = 31 * hash + this.cols;
+    hash = 31 * hash + (this.isWrapping ? 1 : 0);
+    hash = 31 * hash + this.interconnectivity;
+    hash = 31 * hash + this.percentageOfTreasure;
+    return 31 * hash + Long.hashCode(this.seed);
+  }
+
+  @Override
+  public String toString() {
+    return "DungeonKey(" + this.rows + ", " + this.cols + ", " + this.isWrapping + ", "
+        + this.interconnectivity + ", " + this.percentageOfTreasure + ", " + this.seed + ")";
+  }
+}
@@ -0,0 +1,234 @@
+package dungeon;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * The part of a finished dungeon that never changes: its size, its paths, where the caves and
+ * the treasures were placed and the start and end of the player. It is kept in
+ * {@link DungeonFormat} bytes that are never written after they are checked, so one
+ * topology can be shared by any number of threads and games. Each game plays it through a
+ * {@link MappedDungeon} of its own.
+ *
+ * @author anush
+ *
+ */
+public final class DungeonTopology {
+
+  private final ByteBuffer buffer;
+  private final int rows;
+  private final int cols;
+  private final boolean isWrapping;
+  private final int start;
+  private final int end;
+  private volatile int cavesWithTreasure = -1;
+
+  private DungeonTopology(ByteBuffer buffer, int rows, int cols, boolean isWrapping,
+      int start, int end) {
+    this.buffer = buffer;
+    this.rows = rows;
+    this.cols = cols;
+    this.isWrapping = isWrapping;
+    this.start = start;
+    this.end = end;
+  }
+
+  /**
+   * Reads a topology from a buffer that holds a whole dungeon file, starting at the position
+   * of the buffer. The bytes are not copied, so the buffer must not change afterwards.
+   *
+   * @param buffer The dungeon file.
+   * @return The topology stored in the buffer.
+   */
+  public static DungeonTopology wrap(ByteBuffer buffer) {
+    if (buffer == null) {
+      throw new IllegalArgumentException("Enter valid inputs");
+    }
+    ByteBuffer file = buffer.slice().asReadOnlyBuffer();
+    long size = file.remaining();
+    if (size < DungeonFormat.HEADER_BYTES || file.getInt(0) != DungeonFormat.MAGIC) {
+      throw new IllegalArgumentException("Not a dungeon file");
+    }
+    if (file.getInt(4) != DungeonFormat.VERSION) {
+      throw new IllegalArgumentException("Unsupported dungeon file version " + file.getInt(4));
+    }
+    int rows = file.getInt(8);
+    int cols = file.getInt(12);
+    boolean isWrapping = (file.getInt(16) & DungeonFormat.FLAG_WRAPPING) != 0;
+    int start = file.getInt(20);
+    int end = file.getInt(24);
+    if (rows < 1 || cols < 1 || size != DungeonFormat.HEADER_BYTES + (long) rows * cols) {
+      throw new IllegalArgumentException("Dungeon file has the wrong size");
+    }
+    long vertices = (long) rows * cols;
+    if (start < DungeonFormat.NO_NODE || start >= vertices
+        || end < DungeonFormat.NO_NODE || end >= vertices
+        || (start == DungeonFormat.NO_NODE) != (end == DungeonFormat.NO_NODE)) {
+      throw new IllegalArgumentException("Dungeon file has an invalid start or end");
+    }
+    return new DungeonTopology(file, rows, cols, isWrapping, start, end);
+  }
+
+  /**
+   * Maps a dungeon file read only. Nothing is copied onto the heap and every JVM on a host
+   * that maps the same file shares its pages through the page cache. The mapping stays valid
+   * after this returns and is released when the topology is garbage collected.
+   *
+   * @param file The file to read.
+   * @return The topology stored in the file.
+   * @throws IOException If the file cannot be read or is not a dungeon file.
+   */
+  public static DungeonTopology map(File file) throws IOException {
+    if (file == null) {
+      throw new IllegalArgumentException("Enter valid inputs");
+    }
+    try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+      if (channel.size() > Integer.MAX_VALUE) {
+        throw new IOException("Not a dungeon file: " + file);
+      }
+      return wrap(channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()));
+    } catch (IllegalArgumentException e) {
+      throw new IOException(e.getMessage() + ": " + file, e);
+    }
+  }
+
+  /**
+   * Takes the topology of a built dungeon. The start and end of its player are kept if they
+   * were set.
+   *
+   * @param d The dungeon.
+   * @return A copy of the dungeon that never changes.
+   */
+  public static DungeonTopology of(IDungeon d) {
+    if (d == null) {
+      throw new IllegalArgumentException("Enter valid inputs");
+    }
+    ByteArrayOutputStream out = new ByteArrayOutputStream(
+        DungeonFormat.HEADER_BYTES + d.getRows() * d.getCols());
+    try {
+      d.writeTo(out);
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+    return wrap(ByteBuffer.wrap(out.toByteArray()));
+  }
+
+  public int getRows() {
+    return this.rows;
+  }
+
+  public int getCols() {
+    return this.cols;
+  }
+
+  public boolean getIsWrapping() {
+    return this.isWrapping;
+  }
+
+  /**
+   * Gets the start node of the player.
+   *
+   * @return The node id, or {@link DungeonFormat#NO_NODE} if none was stored.
+   */
+  public int getStart() {
+    return this.start;
+  }
+
+  /**
+   * Gets the end node of the player.
+   *
+   * @return The node id, or {@link DungeonFormat#NO_NODE} if none was stored.
+   */
+  public int getEnd() {
+    return this.end;
+  }
+
+  /**
+   * Gets the number of bytes the topology takes in dungeon file form.
+   *
+   * @return The size in bytes.
+   */
+  public int getSize() {
+    return this.buffer.capacity();
+  }
+
+  /**
+   * Gets the paths of the dungeon as a graph. The graph reads the packed nodes directly, so
+   * it takes no memory of its own and is as safe to share as the topology.
+   *
+   * @return The connections between the nodes.
+   */
+  public IGraph getGraph() {
+    return new IGraph() {
+      @Override
+      public int getVertices() {
+        return rows * cols;
+      }
+
+      @Override
+      public int getDegree(int v) {
+        return CellMask.degree(cell(v));
+      }
+
+      @Override
+      public int getNeighbor(int v, int i) {
+        int directions = cell(v) & CellMask.DIRECTIONS;
+        for (int k = 0; k < i; k++) {
+          directions &= directions - 1;
+        }
+        return PathFinder.step(v, direction(Integer.lowestOneBit(directions)), rows, cols);
+      }
+    };
+  }
+
+  /**
+   * Gets the number of caves that were given treasure. The nodes are counted on first use
+   * and the count is kept, so a mapped file is not read in full before it is needed.
+   *
+   * @return The number of caves with treasure.
+   */
+  public int getCavesWithTreasure() {
+    int count = this.cavesWithTreasure;
+    if (count < 0) {
+      count = 0;
+      for (int nid = 0; nid < this.rows * this.cols; nid++) {
+        int cell = cell(nid);
+        if ((cell & CellMask.CAVE) != 0 && (cell & CellMask.TREASURES) != 0) {
+          count++;
+        }
+      }
+      // Every thread that counts gets the same number, so a race only repeats the work.
+      this.cavesWithTreasure = count;
+    }
+    return count;
+  }
+
+  private static Directions direction(int bit) {
+    switch (bit) {
+      case CellMask.NORTH:
+        return Directions.North;
+      case CellMask.SOUTH:
+        return Directions.South;
+      case CellMask.EAST:
+        return Directions.East;
+      default:
+        return Directions.West;
+    }
+  }
+
+  /**
+   * Reads the packed byte of a node. Absolute reads leave the buffer untouched, so this is
+   * safe to call from any thread.
+   *
+   * @param nid The node id.
+   * @return The packed node as an unsigned value.
+   */
+  int cell(int nid) {
+    return this.buffer.get(DungeonFormat.HEADER_BYTES + nid) & 0xFF;
+  }
+}
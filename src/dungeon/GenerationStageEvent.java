@@ -0,0 +1,59 @@
+package dungeon;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * A flight recorder event for one building step of a dungeon, from {@code createDungeon}
+ * through the picking of the start and end caves. Its duration is the time the step took.
+ * Counters that do not apply to a step are left at 0.
+ *
+ * <p>Recordings can be read with {@code jfr print --events dungeon.GenerationStage}.
+ *
+ * @author anush
+ *
+ */
+@Name("dungeon.GenerationStage")
+@Label("Dungeon Generation Stage")
+@Category("Dungeon")
+@Description("One building step of a dungeon")
+final class GenerationStageEvent extends Event {
+
+  @Label("Stage")
+  String stage;
+
+  @Label("Rows")
+  int rows;
+
+  @Label("Columns")
+  int cols;
+
+  @Label("Wrapping")
+  boolean wrapping;
+
+  @Label("Interconnectivity")
+  @Description("The number of extra paths asked for, or -1 if it is not known")
+  int interconnectivity;
+
+  @Label("Edges Drawn")
+  @Description("Edges Kruskal's algorithm looked at")
+  long edgesDrawn;
+
+  @Label("Edges Rejected")
+  @Description("Edges Kruskal's algorithm left out because they would form a cycle")
+  long edgesRejected;
+
+  @Label("Nodes Visited")
+  @Description("Nodes reached by the searches for a start and end cave")
+  long nodesVisited;
+
+  @Label("Caves With Treasure")
+  long cavesWithTreasure;
+
+  GenerationStageEvent(Stage stage) {
+    this.stage = stage.getStage();
+  }
+}
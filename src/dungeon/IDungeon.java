@@ -1,12 +1,21 @@
 package dungeon;
 
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.Writer;
 import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ForkJoinPool;
 
 /**
  * A blueprint to create a dungeon.
  * If a programmer wants to create a new dungeon or extend our program 
  * in the future we want to extend the dungeon we can use this interface to 
  * reduce bugs.
+ *
+ * <p>Treasure is never taken out of a cave. The player collects the treasure of a cave every
+ * time they enter it, in every kind of dungeon, so a game plays the same whether its dungeon
+ * was built for it or shared through a {@link DungeonCache}.
  * 
  * @author anush
  *
@@ -56,6 +65,14 @@ public interface IDungeon {
    * We only get unique paths.
    */
   void kruskalAlgorithms();
+
+  /**
+   * Does the same job as {@link #kruskalAlgorithms()} but builds the unique paths of many
+   * parts of the dungeon at the same time before joining them into one.
+   *
+   * @param pool The pool that runs the parts of the dungeon.
+   */
+  void parallelKruskalAlgorithms(ForkJoinPool pool);
   
   /**
    * The paths that are left out when we run kruskal's is sorted separately.
@@ -96,6 +113,8 @@ public interface IDungeon {
     
   /**
    * Setting paths of minimum length 5 from start to end.
+   * A dungeon that samples its start and end caves may defer this work until the player is
+   * placed.
    */
   void setStartEnd();
   
@@ -115,6 +134,39 @@ public interface IDungeon {
    *        node.
    */
   String playerMovement(int move);
+
+  /**
+   * Moves the player the same way as {@link #playerMovement(int)} without describing the
+   * move. This is what replays and bots use.
+   *
+   * @param move The user input that allows player movement.
+   * @return True if the player moved, false if the input was not a valid direction.
+   */
+  boolean stepPlayer(int move);
+
+  /**
+   * Gets the player of the game.
+   *
+   * @return The player, or null before {@link #setPlayerStartAndEnd()} was called.
+   */
+  IPlayer getPlayer();
+
+  /**
+   * Gets the number of steps between the player and the end cave, using only the moves the
+   * player is offered.
+   *
+   * @return The length of a shortest path to the end cave, or
+   *        {@link DistanceEngine#UNREACHABLE} if the player cannot get there.
+   */
+  int distanceToExit();
+
+  /**
+   * Suggests a move that takes the player closer to the end cave.
+   *
+   * @return A direction the player can move in, or null if the player is at the end cave or
+   *        cannot get there.
+   */
+  Directions hint();
   
   //PRINT METHODS
 
@@ -123,6 +175,13 @@ public interface IDungeon {
    * @return A string that shows all nodes in the dungeon.
    */
   String printDungeon();
+
+  /**
+   * Writes the same text as {@link #printDungeon()} a row at a time.
+   * @param out Where the text is written.
+   * @throws IOException If the text cannot be written.
+   */
+  void printDungeon(Appendable out) throws IOException;
   
   /**
    * A method used to print all the edges that are possible 
@@ -137,6 +196,13 @@ public interface IDungeon {
    *        to every other node.
    */
   String printUniquePath();
+
+  /**
+   * Writes the same text as {@link #printUniquePath()} a few paths at a time.
+   * @param out Where the text is written.
+   * @throws IOException If the text cannot be written.
+   */
+  void printUniquePath(Appendable out) throws IOException;
   
   /**
    * The edges that were not considered during kruskal's/
@@ -144,6 +210,13 @@ public interface IDungeon {
    * @return A string of paths that were ignored during kruskal's.
    */
   String printLeftOverPath();
+
+  /**
+   * Writes the same text as {@link #printLeftOverPath()} a few paths at a time.
+   * @param out Where the text is written.
+   * @throws IOException If the text cannot be written.
+   */
+  void printLeftOverPath(Appendable out) throws IOException;
   
   /**
    * Provides complete description of each node.
@@ -151,6 +224,13 @@ public interface IDungeon {
    * @return A string with all the above mentioned details.
    */
   String printPotentialPathsDirections();
+
+  /**
+   * Writes the same text as {@link #printPotentialPathsDirections()} a row at a time.
+   * @param out Where the text is written.
+   * @throws IOException If the text cannot be written.
+   */
+  void printPotentialPathsDirections(Appendable out) throws IOException;
   
   /**
    * Displays the dungeon in a visually understanding way.
@@ -160,6 +240,44 @@ public interface IDungeon {
    */
   String displayDungeon();
 
+  /**
+   * Writes the same text as {@link #displayDungeon()} a row at a time.
+   * @param out Where the text is written.
+   * @throws IOException If the text cannot be written.
+   */
+  void displayDungeon(Appendable out) throws IOException;
+
+  /**
+   * Writes the part of {@link #displayDungeon()} that shows some rows of the dungeon.
+   * Writing consecutive ranges one after the other gives the whole text.
+   * @param out Where the text is written.
+   * @param fromRow The first row, included.
+   * @param toRow The last row, excluded.
+   * @throws IOException If the text cannot be written.
+   */
+  void displayDungeon(Appendable out, int fromRow, int toRow) throws IOException;
+
+  /**
+   * Writes the same text as {@link #displayDungeon()}, rendering ranges of rows on several
+   * threads. Ranges are written in order as they finish and only a few are held at a time.
+   * The dungeon must not change while it is written.
+   * @param out Where the text is written.
+   * @param executor Renders the ranges. It is not shut down.
+   * @param parallelism The most ranges rendered at a time.
+   * @throws IOException If the text cannot be written.
+   */
+  void displayDungeon(Writer out, ExecutorService executor, int parallelism)
+      throws IOException;
+
+  /**
+   * Makes a window of the dungeon around the player that can be redrawn after every move.
+   * The dungeon must be built before the window is drawn.
+   * @param viewRows The number of rows of cells in the window.
+   * @param viewCols The number of columns of cells in the window.
+   * @return A new viewport for this game.
+   */
+  Viewport viewport(int viewRows, int viewCols);
+
   /**
    * Prints all the treasures collected and shows that the game has ended.
    * @return A string representing a list of treasures collected and shows an end message.
@@ -180,6 +298,7 @@ public interface IDungeon {
 
   /**
    * Get all path objects from start to end with minimum length 5.
+   * The list is computed on first use if the dungeon has not built it yet.
    * @return
    */
   List<IPath> getStartEnd();
@@ -220,5 +339,12 @@ public interface IDungeon {
    */
   String playerDetails();
 
-  
+  /**
+   * Writes the finished dungeon in {@link DungeonFormat}, together with the start and end of
+   * the player if they were set. The stream is flushed but not closed.
+   * @param out Where to write the dungeon to.
+   * @throws IOException If writing fails.
+   */
+  void writeTo(OutputStream out) throws IOException;
+
 }
@@ -0,0 +1,36 @@
+package dungeon;
+
+/**
+ * A read-only view of the connections between the nodes of a dungeon.
+ * Nodes are identified by their unique node id, so a graph algorithm can walk
+ * the dungeon without touching the node objects themselves.
+ *
+ * @author anush
+ *
+ */
+public interface IGraph {
+
+  /**
+   * Gets the number of nodes in the graph.
+   *
+   * @return The number of nodes. Node ids range from 0 to this value minus one.
+   */
+  int getVertices();
+
+  /**
+   * Gets the number of paths that leave the given node.
+   *
+   * @param v The node id.
+   * @return The number of neighbours of the node.
+   */
+  int getDegree(int v);
+
+  /**
+   * Gets a neighbour of the given node.
+   *
+   * @param v The node id.
+   * @param i The index of the neighbour, between 0 and the degree of the node minus one.
+   * @return The node id of the neighbour.
+   */
+  int getNeighbor(int v, int i);
+}
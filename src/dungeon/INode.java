@@ -139,4 +139,12 @@ public interface INode {
    * @return A list of treasures if any nodes present.
    */
   public List<Treasure> getTreasures();
+
+  /**
+   * Gets the treasure of the node packed as described in {@link TreasureLedger}. This is the
+   * same treasure {@link #getTreasures()} lists, without building the list.
+   *
+   * @return The packed counts of every kind of treasure.
+   */
+  public int getTreasureCounts();
 }
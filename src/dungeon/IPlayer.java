@@ -36,6 +36,15 @@ public interface IPlayer {
    */
   String move(Directions d);
 
+  /**
+   * Moves the player like {@link #move(Directions)} and collects the treasure, without
+   * describing the move.
+   *
+   * @param d The direction in which we want the player to move.
+   * @return The treasure collected, packed as described in {@link TreasureLedger}.
+   */
+  int step(Directions d);
+
   /**
    * This is a list that maintains all the treasures that are picked up on the 
    * way to the end node.
@@ -49,4 +58,20 @@ public interface IPlayer {
    * @param startTreasure The list of treasures in the start node.
    */
   void setPickedTreasures(List<Treasure> startTreasure);
+
+  /**
+   * Gets how much of one kind of treasure the player collected so far.
+   *
+   * @param t The kind of treasure.
+   * @return The number collected.
+   */
+  long getCollected(Treasure t);
+
+  /**
+   * Gets the number of times the player picked up treasure. This is the size of
+   * {@link #getAllPickedTreasures()} without building it.
+   *
+   * @return The number of pickups.
+   */
+  int getPickupCount();
 }
@@ -0,0 +1,259 @@
+package dungeon;
+
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBufferByte;
+import java.awt.image.IndexColorModel;
+import java.io.File;
+import java.io.IOException;
+import java.util.concurrent.ExecutorService;
+import javax.imageio.ImageIO;
+
+/**
+ * Draws a dungeon as an image for reviewing maps that are too large to read as text. Every
+ * node is a square of a few pixels: corridors run from its middle towards each direction it
+ * has a path in, caves are drawn as a large room and tunnels as a small one. Caves with
+ * treasure get a dot in the color of the treasure, and the start and end caves are filled
+ * green and orange.
+ *
+ * <p>The image uses a palette of 16 colors, so it takes half a byte per pixel. The size of a
+ * node in pixels is picked so the whole image fits in a fixed memory budget, which is what
+ * lets a 5000 by 5000 dungeon be drawn at all. The dungeon is cut into horizontal bands of
+ * rows that are drawn at the same time on the given executor, each straight into its own
+ * lines of the shared image, so no band needs a buffer of its own.
+ *
+ * @author anush
+ *
+ */
+public class ImageExporter {
+
+  /**
+   * The memory used for the image if no budget is given, in bytes.
+   */
+  public static final long DEFAULT_BUDGET = 256L << 20;
+
+  /**
+   * The smallest node in pixels. Below this paths cannot be told apart.
+   */
+  public static final int MIN_CELL = 3;
+
+  private static final int BAND_ROWS = 32;
+
+  private static final int BACKGROUND = 0;
+  private static final int CORRIDOR = 1;
+  private static final int TUNNEL = 2;
+  private static final int CAVE = 3;
+  private static final int DIAMOND = 4;
+  private static final int RUBY = 5;
+  private static final int SAPHIRE = 6;
+  private static final int SEVERAL_TREASURES = 7;
+  private static final int START = 8;
+  private static final int END = 9;
+
+  private static final IndexColorModel PALETTE = palette(
+      0x202028, 0xb0b0b0, 0x808080, 0xf0f0f0, 0x40e0f0,
+      0xe02040, 0x3050e0, 0xf0c020, 0x30c040, 0xf08020);
+
+  private final ExecutorService executor;
+  private final int parallelism;
+  private final long budget;
+
+  /**
+   * Construct an exporter with the default memory budget.
+   *
+   * @param executor Draws the bands. It is not shut down by this class.
+   * @param parallelism The most bands drawn at a time.
+   */
+  public ImageExporter(ExecutorService executor, int parallelism) {
+    this(executor, parallelism, DEFAULT_BUDGET);
+  }
+
+  /**
+   * Construct an exporter.
+   *
+   * @param executor Draws the bands. It is not shut down by this class.
+   * @param parallelism The most bands drawn at a time.
+   * @param budget The most memory the image may take, in bytes.
+   */
+  public ImageExporter(ExecutorService executor, int parallelism, long budget) {
+    if (executor == null || parallelism < 1 || budget < 1) {
+      throw new IllegalArgumentException("Enter valid inputs");
+    }
+    this.executor = executor;
+    this.parallelism = parallelism;
+    this.budget = budget;
+  }
+
+  private static IndexColorModel palette(int... colors) {
+    byte[] red = new byte[16];
+    byte[] green = new byte[16];
+    byte[] blue = new byte[16];
+    for (int i = 0; i < colors.length; i++) {
+      red[i] = (byte) (colors[i] >>> 16);
+      green[i] = (byte) (colors[i] >>> 8);
+      blue[i] = (byte) colors[i];
+    }
+    return new IndexColorModel(4, 16, red, green, blue);
+  }
+
+  /**
+   * Gets the size of a node in pixels for a dungeon, the largest up to the one asked for that
+   * keeps the image within the memory budget.
+   *
+   * @param rows The number of rows of the dungeon.
+   * @param cols The number of columns of the dungeon.
+   * @param maxCell The size of a node to use if it fits.
+   * @return The size of a node in pixels.
+   */
+  public int cellSizeFor(int rows, int cols, int maxCell) {
+    if (rows < 1 || cols < 1 || maxCell < MIN_CELL) {
+      throw new IllegalArgumentException("Enter valid inputs");
+    }
+    for (int cell = maxCell; cell >= MIN_CELL; cell--) {
+      long width = (long) cols * cell;
+      long bytes = (width * 4 + 7) / 8 * rows * cell;
+      if (width <= Integer.MAX_VALUE && (long) rows * cell <= Integer.MAX_VALUE
+          && bytes <= this.budget && bytes <= Integer.MAX_VALUE - 8) {
+        return cell;
+      }
+    }
+    throw new IllegalArgumentException("A " + rows + "x" + cols
+        + " dungeon does not fit in a budget of " + this.budget + " bytes");
+  }
+
+  /**
+   * Draws a dungeon.
+   *
+   * @param dungeon The dungeon, which must be built and must not change while it is drawn.
+   * @param maxCell The size of a node in pixels to use if the image fits in the budget.
+   * @return The image.
+   * @throws InterruptedException If the calling thread is interrupted while waiting.
+   */
+  public BufferedImage render(IDungeon dungeon, int maxCell) throws InterruptedException {
+    if (!(dungeon instanceof AbstractDungeon)) {
+      throw new IllegalArgumentException("Enter valid inputs");
+    }
+    AbstractDungeon d = (AbstractDungeon) dungeon;
+    int rows = d.getRows();
+    int cols = d.getCols();
+    int cell = cellSizeFor(rows, cols, maxCell);
+    BufferedImage image = new BufferedImage(cols * cell, rows * cell,
+        BufferedImage.TYPE_BYTE_BINARY, PALETTE);
+    byte[] pixels = ((DataBufferByte) image.getRaster().getDataBuffer()).getData();
+    int stride = (cols * cell * 4 + 7) / 8;
+
+    IPath path = d.getStartEndPath();
+    int start = path == null ? DungeonFormat.NO_NODE : path.getStart().getNid();
+    int end = path == null ? DungeonFormat.NO_NODE : path.getEnd().getNid();
+
+    BoundedTasks.run(this.executor, this.parallelism, (rows + BAND_ROWS - 1) / BAND_ROWS,
+        band -> {
+          int last = Math.min(rows, (band + 1) * BAND_ROWS);
+          for (int row = band * BAND_ROWS; row < last; row++) {
+            for (int col = 0; col < cols; col++) {
+              int nid = row * cols + col;
+              int marker = nid == start ? START : nid == end ? END : BACKGROUND;
+              drawCell(pixels, stride, col * cell, row * cell, cell, d.packedCell(nid), marker);
+            }
+          }
+        }, "Could not draw the dungeon");
+    return image;
+  }
+
+  /**
+   * Draws a dungeon and writes it as a PNG file.
+   *
+   * @param dungeon The dungeon, which must be built and must not change while it is drawn.
+   * @param maxCell The size of a node in pixels to use if the image fits in the budget.
+   * @param file The file to write.
+   * @throws IOException If the file cannot be written.
+   * @throws InterruptedException If the calling thread is interrupted while waiting.
+   */
+  public void write(IDungeon dungeon, int maxCell, File file)
+      throws IOException, InterruptedException {
+    if (file == null) {
+      throw new IllegalArgumentException("Enter valid inputs");
+    }
+    if (!ImageIO.write(render(dungeon, maxCell), "png", file)) {
+      throw new IOException("No PNG writer is available");
+    }
+  }
+
+  /**
+   * Draws one node whose top left pixel is at x, y. The corridors are a third of the node
+   * wide and meet in its middle; a cave room leaves a fifth of the node free on each side.
+   */
+  private static void drawCell(byte[] pixels, int stride, int x, int y, int size, int cell,
+      int marker) {
+    int corridor = Math.max(1, size / 3);
+    int inset = (size - corridor) / 2;
+    if ((cell & CellMask.NORTH) != 0) {
+      fill(pixels, stride, x + inset, y, corridor, inset + corridor, CORRIDOR);
+    }
+    if ((cell & CellMask.SOUTH) != 0) {
+      fill(pixels, stride, x + inset, y + inset, corridor, size - inset, CORRIDOR);
+    }
+    if ((cell & CellMask.WEST) != 0) {
+      fill(pixels, stride, x, y + inset, inset + corridor, corridor, CORRIDOR);
+    }
+    if ((cell & CellMask.EAST) != 0) {
+      fill(pixels, stride, x + inset, y + inset, size - inset, corridor, CORRIDOR);
+    }
+
+    if ((cell & CellMask.CAVE) == 0) {
+      fill(pixels, stride, x + inset, y + inset, corridor, corridor, TUNNEL);
+      return;
+    }
+    int margin = Math.max(1, size / 5);
+    int room = size - 2 * margin;
+    if (room < 1) {
+      margin = inset;
+      room = corridor;
+    }
+    int treasure = treasureColor(cell);
+    if (marker != BACKGROUND) {
+      fill(pixels, stride, x + margin, y + margin, room, room, marker);
+    } else if (treasure != BACKGROUND && room < 3) {
+      fill(pixels, stride, x + margin, y + margin, room, room, treasure);
+    } else {
+      fill(pixels, stride, x + margin, y + margin, room, room, CAVE);
+      if (treasure != BACKGROUND) {
+        int dot = Math.max(1, room / 2);
+        int offset = margin + (room - dot) / 2;
+        fill(pixels, stride, x + offset, y + offset, dot, dot, treasure);
+      }
+    }
+  }
+
+  private static int treasureColor(int cell) {
+    switch (cell & CellMask.TREASURES) {
+      case 0:
+        return BACKGROUND;
+      case CellMask.DIAMOND:
+        return DIAMOND;
+      case CellMask.RUBY:
+        return RUBY;
+      case CellMask.SAPHIRE:
+        return SAPHIRE;
+      default:
+        return SEVERAL_TREASURES;
+    }
+  }
+
+  /**
+   * Fills a rectangle with one color. Two pixels share a byte, the left one in the high half.
+   */
+  private static void fill(byte[] pixels, int stride, int x, int y, int width, int height,
+      int color) {
+    for (int row = y; row < y + height; row++) {
+      int base = row * stride;
+      for (int col = x; col < x + width; col++) {
+        int index = base + (col >>> 1);
+        if ((col & 1) == 0) {
+          pixels[index] = (byte) ((pixels[index] & 0x0f) | (color << 4));
+        } else {
+          pixels[index] = (byte) ((pixels[index] & 0xf0) | color);
+        }
+      }
+    }
+  }
+}
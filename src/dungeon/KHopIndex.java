@@ -0,0 +1,106 @@
+package dungeon;
+
+/**
+ * Answers whether two nodes are at least a given number of steps apart without computing
+ * shortest paths. For every node we keep a bitset row of the target nodes that lie within
+ * minDistance - 1 steps of it. The rows are built by repeatedly OR-ing each row with the rows
+ * of its neighbours, one word of 64 targets at a time, so one pass grows every ball by one
+ * step.
+ *
+ * @author anush
+ *
+ */
+public class KHopIndex {
+
+  /**
+   * The largest number of words a single bitset table may use before we refuse to build it.
+   * Two tables are alive while the index is built, so building one takes at most 32 MB of
+   * heap and the finished index keeps 16 MB. Larger dungeons fall back to a search from
+   * every cave.
+   */
+  public static final long MAX_WORDS = 1L << 21;
+
+  private final int minDistance;
+  private final int words;
+  private final long[] rows;
+
+  /**
+   * Build an index for the given graph.
+   *
+   * @param graph The connections of the dungeon.
+   * @param targets The node ids that can be asked about, usually the caves. A target is later
+   *        referred to by its position in this array.
+   * @param minDistance The number of steps two nodes must at least be apart.
+   */
+  public KHopIndex(IGraph graph, int[] targets, int minDistance) {
+    if (graph == null || targets == null) {
+      throw new IllegalArgumentException("Enter valid inputs");
+    }
+    int vertices = graph.getVertices();
+    if (!fits(vertices, targets.length)) {
+      throw new IllegalArgumentException("Dungeon too large for a k-hop index.");
+    }
+    this.minDistance = minDistance;
+    this.words = (targets.length + 63) >>> 6;
+
+    long[] current = new long[vertices * this.words];
+    for (int t = 0; t < targets.length; t++) {
+      current[targets[t] * this.words + (t >>> 6)] |= 1L << t;
+    }
+
+    if (minDistance > 1) {
+      long[] next = new long[current.length];
+      for (int step = 0; step < minDistance - 1; step++) {
+        for (int v = 0; v < vertices; v++) {
+          int row = v * this.words;
+          System.arraycopy(current, row, next, row, this.words);
+          int degree = graph.getDegree(v);
+          for (int i = 0; i < degree; i++) {
+            int neighbor = graph.getNeighbor(v, i) * this.words;
+            for (int w = 0; w < this.words; w++) {
+              next[row + w] |= current[neighbor + w];
+            }
+          }
+        }
+        long[] swap = current;
+        current = next;
+        next = swap;
+      }
+    }
+    this.rows = current;
+  }
+
+  /**
+   * Checks whether an index for the given sizes stays within {@link #MAX_WORDS}.
+   *
+   * @param vertices The number of nodes in the dungeon.
+   * @param targets The number of target nodes.
+   * @return True if the index can be built.
+   */
+  public static boolean fits(int vertices, int targets) {
+    return (long) vertices * ((targets + 63) >>> 6) <= MAX_WORDS;
+  }
+
+  /**
+   * Checks whether a node is at least minDistance steps away from a target.
+   *
+   * @param source The node id to start from.
+   * @param target The position of the target in the array the index was built with.
+   * @return True if the shortest path between them is at least minDistance long.
+   */
+  public boolean isAtLeast(int source, int target) {
+    if (this.minDistance <= 0) {
+      return true;
+    }
+    return (this.rows[source * this.words + (target >>> 6)] & (1L << target)) == 0;
+  }
+
+  /**
+   * Gets the number of steps two nodes must at least be apart.
+   *
+   * @return The distance threshold of this index.
+   */
+  public int getMinDistance() {
+    return this.minDistance;
+  }
+}
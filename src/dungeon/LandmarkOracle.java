@@ -0,0 +1,237 @@
+package dungeon;
+
+import java.util.Arrays;
+
+/**
+ * Answers distance questions between any two nodes of a large dungeon from a few
+ * precomputed breadth first searches. A small number of landmarks is picked by farthest
+ * point selection: the first is the node farthest from node 0 and every further one is the
+ * node farthest from all landmarks picked so far. The distance from every landmark to every
+ * node is stored, and by the triangle inequality any pair of nodes is at least
+ * |d(l, u) - d(l, v)| and at most d(l, u) + d(l, v) apart for every landmark l. Both bounds
+ * take one pass over the landmarks.
+ *
+ * <p>Exact distances are found with A* using the lower bound as the estimate, which never
+ * overestimates and usually looks at far fewer nodes than a plain search.
+ *
+ * <p>Distances are stored node by node, so the landmarks of one node sit next to each other
+ * in memory. When every distance fits in 16 bits they are kept as shorts, which halves the
+ * memory; otherwise as ints. The graph must be connected and undirected, which every
+ * dungeon graph is.
+ *
+ * <p>The bounds may be read by any number of threads. Exact queries keep search buffers, so
+ * they must only be run by one thread at a time.
+ *
+ * @author anush
+ *
+ */
+public class LandmarkOracle {
+
+  private static final int SHORT_LIMIT = 0xFFFF;
+
+  private final IGraph graph;
+  private final int vertices;
+  private final int[] landmarks;
+  private final short[] shortDistances;
+  private final int[] intDistances;
+
+  private int[] cost;
+  private int[] seen;
+  private int[] closed;
+  private int[] targetDistances;
+  private NodeHeap open;
+  private int stamp;
+
+  /**
+   * Picks the landmarks and runs a breadth first search from each.
+   *
+   * @param graph The connections of the dungeon.
+   * @param count The number of landmarks.
+   */
+  public LandmarkOracle(IGraph graph, int count) {
+    if (graph == null || count < 1 || count > graph.getVertices()) {
+      throw new IllegalArgumentException("Enter valid inputs");
+    }
+    if ((long) count * graph.getVertices() > Integer.MAX_VALUE) {
+      throw new IllegalArgumentException("Too many landmarks for a dungeon this size");
+    }
+    this.graph = graph;
+    this.vertices = graph.getVertices();
+    this.landmarks = new int[count];
+
+    DistanceEngine engine = new DistanceEngine(graph);
+    int[] distance = engine.distancesFrom(0);
+    int landmark = farthest(distance);
+    if (distance[landmark] == DistanceEngine.UNREACHABLE) {
+      throw new IllegalArgumentException("The dungeon is not connected");
+    }
+    // No two nodes are further apart than twice the distance from node 0 to any node.
+    boolean compact = 2L * distance[landmark] < SHORT_LIMIT;
+    this.shortDistances = compact ? new short[count * this.vertices] : null;
+    this.intDistances = compact ? null : new int[count * this.vertices];
+
+    int[] nearest = new int[this.vertices];
+    Arrays.fill(nearest, Integer.MAX_VALUE);
+    for (int i = 0; i < count; i++) {
+      this.landmarks[i] = landmark;
+      distance = engine.distancesFrom(landmark);
+      for (int v = 0; v < this.vertices; v++) {
+        int d = distance[v];
+        if (compact) {
+          this.shortDistances[v * count + i] = (short) d;
+        } else {
+          this.intDistances[v * count + i] = d;
+        }
+        if (d < nearest[v]) {
+          nearest[v] = d;
+        }
+      }
+      landmark = farthest(nearest);
+    }
+  }
+
+  private static int farthest(int[] distance) {
+    int best = 0;
+    for (int v = 1; v < distance.length; v++) {
+      if (distance[v] > distance[best]) {
+        best = v;
+      }
+    }
+    return best;
+  }
+
+  /**
+   * Gets the landmarks in the order they were picked.
+   *
+   * @return The node ids of the landmarks.
+   */
+  public int[] getLandmarks() {
+    return this.landmarks.clone();
+  }
+
+  /**
+   * Gets the memory taken by the stored distances.
+   *
+   * @return The size in bytes.
+   */
+  public long getBytes() {
+    return this.shortDistances != null ? 2L * this.shortDistances.length
+        : 4L * this.intDistances.length;
+  }
+
+  /**
+   * Gets the distance between a landmark and a node.
+   *
+   * @param landmark The index of the landmark, in the order they were picked.
+   * @param v The node id.
+   * @return The number of steps.
+   */
+  public int landmarkDistance(int landmark, int v) {
+    int index = v * this.landmarks.length + landmark;
+    return this.shortDistances != null ? this.shortDistances[index] & SHORT_LIMIT
+        : this.intDistances[index];
+  }
+
+  /**
+   * Gets a number of steps two nodes are at least apart.
+   *
+   * @param u The first node id.
+   * @param v The second node id.
+   * @return A lower bound of their distance.
+   */
+  public int lowerBound(int u, int v) {
+    int best = 0;
+    for (int i = 0; i < this.landmarks.length; i++) {
+      int d = Math.abs(landmarkDistance(i, u) - landmarkDistance(i, v));
+      if (d > best) {
+        best = d;
+      }
+    }
+    return best;
+  }
+
+  /**
+   * Gets a number of steps two nodes are at most apart.
+   *
+   * @param u The first node id.
+   * @param v The second node id.
+   * @return An upper bound of their distance.
+   */
+  public int upperBound(int u, int v) {
+    int best = Integer.MAX_VALUE;
+    for (int i = 0; i < this.landmarks.length; i++) {
+      int d = landmarkDistance(i, u) + landmarkDistance(i, v);
+      if (d < best) {
+        best = d;
+      }
+    }
+    return best;
+  }
+
+  /**
+   * Gets the exact length of a shortest path between two nodes.
+   *
+   * @param from The node id to start from.
+   * @param to The node id to reach.
+   * @return The number of steps.
+   */
+  public int distance(int from, int to) {
+    if (from < 0 || from >= this.vertices || to < 0 || to >= this.vertices) {
+      throw new IllegalArgumentException("Enter valid inputs");
+    }
+    if (this.open == null) {
+      this.cost = new int[this.vertices];
+      this.seen = new int[this.vertices];
+      this.closed = new int[this.vertices];
+      this.targetDistances = new int[this.landmarks.length];
+      this.open = new NodeHeap();
+    }
+    if (++this.stamp == Integer.MAX_VALUE) {
+      Arrays.fill(this.seen, 0);
+      Arrays.fill(this.closed, 0);
+      this.stamp = 1;
+    }
+    for (int i = 0; i < this.landmarks.length; i++) {
+      this.targetDistances[i] = landmarkDistance(i, to);
+    }
+
+    this.open.clear();
+    this.cost[from] = 0;
+    this.seen[from] = this.stamp;
+    this.open.push(estimate(from), from);
+    while (!this.open.isEmpty()) {
+      int u = this.open.pop();
+      if (this.closed[u] == this.stamp) {
+        continue;
+      }
+      if (u == to) {
+        return this.cost[u];
+      }
+      this.closed[u] = this.stamp;
+      int next = this.cost[u] + 1;
+      int degree = this.graph.getDegree(u);
+      for (int i = 0; i < degree; i++) {
+        int v = this.graph.getNeighbor(u, i);
+        if (this.closed[v] == this.stamp
+            || (this.seen[v] == this.stamp && this.cost[v] <= next)) {
+          continue;
+        }
+        this.seen[v] = this.stamp;
+        this.cost[v] = next;
+        this.open.push(next + estimate(v), v);
+      }
+    }
+    return DistanceEngine.UNREACHABLE;
+  }
+
+  private int estimate(int v) {
+    int best = 0;
+    for (int i = 0; i < this.targetDistances.length; i++) {
+      int d = Math.abs(landmarkDistance(i, v) - this.targetDistances[i]);
+      if (d > best) {
+        best = d;
+      }
+    }
+    return best;
+  }
+}
@@ -0,0 +1,195 @@
+package dungeon;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * A game played on a shared {@link DungeonTopology}, for example one mapped from a file or
+ * kept in a {@link DungeonCache}. The topology is never changed. Like in every dungeon,
+ * treasure stays in its cave when the player collects it, so a game keeps no state apart from
+ * its player and any number of games can play the same topology at the same time.
+ *
+ * <p>The dungeon is already built, so the building steps do nothing. If the topology holds
+ * a start and end they are used for the player, otherwise they are picked like in any other
+ * dungeon. The file does not tell the unique paths apart from the ones added for
+ * interconnectivity, so the unique paths are printed as every path of the dungeon.
+ *
+ * @author anush
+ *
+ */
+public class MappedDungeon extends PackedDungeon {
+
+  private final DungeonTopology topology;
+
+  /**
+   * Construct a new game on a topology.
+   *
+   * @param topology The shared dungeon.
+   * @param r This is a parameter for randomness. It is used to pick a start and end if the
+   *        topology has none.
+   */
+  public MappedDungeon(DungeonTopology topology, RandomInterface r) {
+    super(topology.getRows(), topology.getCols(), topology.getIsWrapping(), r,
+        StartEndSelection.SAMPLED);
+    this.topology = topology;
+  }
+
+  /**
+   * Maps a dungeon file and starts a game on it. See {@link DungeonTopology#map(File)}.
+   *
+   * @param file The file to read.
+   * @param r This is a parameter for randomness. It is used to pick a start and end if the
+   *        file has none.
+   * @return A dungeon backed by the file.
+   * @throws IOException If the file cannot be read or is not a dungeon file.
+   */
+  public static MappedDungeon open(File file, RandomInterface r) throws IOException {
+    return new MappedDungeon(DungeonTopology.map(file), r);
+  }
+
+  /**
+   * Starts a game on a dungeon file that is already in memory. See
+   * {@link DungeonTopology#wrap(ByteBuffer)}.
+   *
+   * @param buffer The dungeon file.
+   * @param r This is a parameter for randomness. It is used to pick a start and end if the
+   *        file has none.
+   * @return A dungeon backed by the buffer.
+   */
+  public static MappedDungeon wrap(ByteBuffer buffer, RandomInterface r) {
+    return new MappedDungeon(DungeonTopology.wrap(buffer), r);
+  }
+
+  /**
+   * Gets the shared part of this dungeon.
+   *
+   * @return The topology this game is played on.
+   */
+  public DungeonTopology getTopology() {
+    return this.topology;
+  }
+
+  // -------------------------Packed cell access--------------------------------------
+
+  @Override
+  int cell(int nid) {
+    return this.topology.cell(nid);
+  }
+
+  @Override
+  void setBits(int nid, int bits) {
+    throw new UnsupportedOperationException("A mapped dungeon is read only");
+  }
+
+  @Override
+  void clearBits(int nid, int bits) {
+    throw new UnsupportedOperationException("A mapped dungeon is read only");
+  }
+
+  @Override
+  protected boolean isValidEdge(int edge) {
+    int nid = edge >>> 1;
+    if ((edge & 1) == 0) {
+      return this.isWrapping || nid / this.cols + 1 < this.rows;
+    }
+    return this.isWrapping || nid % this.cols + 1 < this.cols;
+  }
+
+  @Override
+  protected boolean isOpen(int edge) {
+    return (cell(edge >>> 1) & ((edge & 1) == 0 ? CellMask.SOUTH : CellMask.EAST)) != 0;
+  }
+
+  @Override
+  protected IPath fixedStartEnd() {
+    if (this.topology.getStart() == DungeonFormat.NO_NODE) {
+      return null;
+    }
+    return new Path(getNode(this.topology.getStart()), getNode(this.topology.getEnd()));
+  }
+
+  // -------------------------Building the dungeon--------------------------------------
+
+  @Override
+  public void createDungeon() {
+    // Already built.
+  }
+
+  @Override
+  public void potentialPaths() {
+    // Already built.
+  }
+
+  @Override
+  public void wrappingPotentialPath() {
+    // Already built.
+  }
+
+  @Override
+  public void kruskalAlgorithms() {
+    // Already built.
+  }
+
+  @Override
+  public void parallelKruskalAlgorithms(ForkJoinPool pool) {
+    // Already built.
+  }
+
+  @Override
+  public void addInterconnectivity() {
+    // Already built.
+  }
+
+  @Override
+  public void updateDirections() {
+    // Already built.
+  }
+
+  @Override
+  public void setLocationType() {
+    // Already built.
+  }
+
+  @Override
+  public void setTreasures() {
+    // Already built.
+  }
+
+  @Override
+  public void adjlist() {
+    // The direction bits are read directly by getGraph().
+  }
+
+  @Override
+  public int numberOfCavesWithTreasures() {
+    return this.topology.getCavesWithTreasure();
+  }
+
+  /**
+   * Every cave that was given treasure keeps it, so the caves of the topology that have
+   * treasure are the ones it was assigned to.
+   */
+  @Override
+  public int treasurePercentageValue() {
+    return this.topology.getCavesWithTreasure();
+  }
+
+  // -------------------------Printing the dungeon--------------------------------------
+
+  @Override
+  public String printPotentialPaths() {
+    return print(out -> printEdges(out, "", true, true));
+  }
+
+  @Override
+  public void printUniquePath(Appendable out) throws IOException {
+    printEdges(out, "PATH FROM ONE NODE TO EVERYOTHER NODE AFTER KRUSKAL\n", true, false);
+  }
+
+  @Override
+  public void printLeftOverPath(Appendable out) throws IOException {
+    printEdges(out, "LEFTOVER PATHS AFTER RUNNING KRUSKALS ALGORITHM\n", false, true);
+  }
+}
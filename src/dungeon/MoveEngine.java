@@ -0,0 +1,316 @@
+package dungeon;
+
+import java.util.Arrays;
+
+/**
+ * Moves a player through a finished dungeon without strings, lists or nodes. When it is
+ * built, the engine works out the neighbor of every node in each of the four directions,
+ * wrapping around the edges if the dungeon wraps, and the packed treasure of every node.
+ * A move after that is two array reads, so a whole sequence of moves can be applied with
+ * {@link #moveBatch(byte[])} without allocating anything.
+ *
+ * <p>Moves are given as the ordinal of a {@link Directions}: 0 for north, 1 for south, 2 for
+ * east and 3 for west. Recorded games give the number of a direction among the ones a node
+ * offers instead, like {@link IDungeon#stepPlayer(int)}, and are applied with
+ * {@link #stepBatch(byte[], int, int, int)}. Like {@link Player}, the engine collects the
+ * treasure of a node every time it enters it, and it never takes treasure out of a node, which
+ * is the rule of every {@link IDungeon}. The tables never change, so engines made with
+ * {@link #fork()} share them and any number of bots can walk one dungeon, each from its own
+ * position.
+ *
+ * @author anush
+ *
+ */
+public final class MoveEngine {
+
+  /**
+   * The neighbor stored for a direction that has no path.
+   */
+  public static final int NO_PATH = -1;
+
+  private static final Treasure[] TREASURES = Treasure.values();
+  private static final int BITS = 8;
+  private static final int MASK = (1 << BITS) - 1;
+
+  private static final Directions[] ALL_DIRECTIONS = Directions.values();
+  private static final int DIRECTIONS = ALL_DIRECTIONS.length;
+
+  private final int[][] next;
+  private final byte[] offered;
+  private final int[] treasure;
+  private final long[] delta;
+  private int pickups;
+  private int rejected;
+  private int position;
+
+  /**
+   * Builds the tables of a dungeon. The engine starts at the start node of the player if the
+   * topology has one, otherwise at node 0.
+   *
+   * @param topology The dungeon.
+   */
+  public MoveEngine(DungeonTopology topology) {
+    if (topology == null) {
+      throw new IllegalArgumentException("Enter valid inputs");
+    }
+    int rows = topology.getRows();
+    int cols = topology.getCols();
+    int vertices = rows * cols;
+    this.next = new int[DIRECTIONS][vertices];
+    this.offered = new byte[DIRECTIONS * vertices];
+    this.treasure = new int[vertices];
+    Arrays.fill(this.offered, (byte) NO_PATH);
+    for (int nid = 0; nid < vertices; nid++) {
+      int cell = topology.cell(nid);
+      link(nid, cell, rows, cols);
+      // The nodes of a packed dungeon offer their directions in the order of Directions.
+      int k = 0;
+      for (Directions d : ALL_DIRECTIONS) {
+        if ((cell & CellMask.of(d)) != 0) {
+          this.offered[DIRECTIONS * nid + k++] = (byte) d.ordinal();
+        }
+      }
+    }
+    this.delta = new long[TREASURES.length];
+    this.position = topology.getStart() == DungeonFormat.NO_NODE ? 0 : topology.getStart();
+  }
+
+  /**
+   * Builds the tables of a finished dungeon, reading the directions of every node in the
+   * order the node offers them. The engine starts at the start cave of the player.
+   *
+   * @param d The dungeon. Its player must have been placed.
+   */
+  MoveEngine(AbstractDungeon d) {
+    if (d == null || d.getStartEndPath() == null) {
+      throw new IllegalArgumentException("Enter valid inputs");
+    }
+    int rows = d.getRows();
+    int cols = d.getCols();
+    int vertices = rows * cols;
+    this.next = new int[DIRECTIONS][vertices];
+    this.offered = new byte[DIRECTIONS * vertices];
+    this.treasure = new int[vertices];
+    Arrays.fill(this.offered, (byte) NO_PATH);
+    for (int nid = 0; nid < vertices; nid++) {
+      link(nid, d.packedCell(nid), rows, cols);
+      int k = 0;
+      for (Directions direction : d.getNode(nid).possibleDirections()) {
+        this.offered[DIRECTIONS * nid + k++] = (byte) direction.ordinal();
+      }
+    }
+    this.delta = new long[TREASURES.length];
+    this.position = d.getStartEndPath().getStart().getNid();
+  }
+
+  private MoveEngine(MoveEngine shared) {
+    this.next = shared.next;
+    this.offered = shared.offered;
+    this.treasure = shared.treasure;
+    this.delta = new long[TREASURES.length];
+    this.position = shared.position;
+  }
+
+  private void link(int nid, int cell, int rows, int cols) {
+    int row = nid / cols;
+    int col = nid % cols;
+    this.next[Directions.North.ordinal()][nid] = (cell & CellMask.NORTH) == 0 ? NO_PATH
+        : row == 0 ? nid + (rows - 1) * cols : nid - cols;
+    this.next[Directions.South.ordinal()][nid] = (cell & CellMask.SOUTH) == 0 ? NO_PATH
+        : row == rows - 1 ? nid - (rows - 1) * cols : nid + cols;
+    this.next[Directions.East.ordinal()][nid] = (cell & CellMask.EAST) == 0 ? NO_PATH
+        : col == cols - 1 ? nid - (cols - 1) : nid + 1;
+    this.next[Directions.West.ordinal()][nid] = (cell & CellMask.WEST) == 0 ? NO_PATH
+        : col == 0 ? nid + (cols - 1) : nid - 1;
+    this.treasure[nid] = TreasureLedger.fromCell(cell);
+  }
+
+  /**
+   * Makes an engine that shares the tables of this one and starts at its current position.
+   *
+   * @return The new engine.
+   */
+  public MoveEngine fork() {
+    return new MoveEngine(this);
+  }
+
+  public int getPosition() {
+    return this.position;
+  }
+
+  /**
+   * Puts the engine on a node without collecting its treasure.
+   *
+   * @param nid The node id.
+   */
+  public void setPosition(int nid) {
+    if (nid < 0 || nid >= this.treasure.length) {
+      throw new IllegalArgumentException("Enter valid inputs");
+    }
+    this.position = nid;
+  }
+
+  /**
+   * Gets the node reached by moving one step from a node.
+   *
+   * @param nid The node id.
+   * @param d The direction to move in.
+   * @return The node id of the neighbor, or {@link #NO_PATH} if there is no path that way.
+   */
+  public int neighbor(int nid, Directions d) {
+    return this.next[d.ordinal()][nid];
+  }
+
+  /**
+   * Applies a sequence of moves.
+   *
+   * @param directions The ordinal of the direction of every move.
+   * @return The node id the engine ends on.
+   * @throws IllegalArgumentException If a move has no path. The engine then stays where it
+   *     was before the batch and the batch counts as having collected nothing.
+   */
+  public int moveBatch(byte[] directions) {
+    if (directions == null) {
+      throw new IllegalArgumentException("Enter valid inputs");
+    }
+    return moveBatch(directions, 0, directions.length);
+  }
+
+  /**
+   * Applies part of a sequence of moves.
+   *
+   * @param directions The ordinal of the direction of every move.
+   * @param from The index of the first move to apply.
+   * @param to The index after the last move to apply.
+   * @return The node id the engine ends on.
+   * @throws IllegalArgumentException If a move has no path. The engine then stays where it
+   *     was before the batch and the batch counts as having collected nothing.
+   */
+  public int moveBatch(byte[] directions, int from, int to) {
+    if (directions == null || from < 0 || to > directions.length || from > to) {
+      throw new IllegalArgumentException("Enter valid inputs");
+    }
+    Arrays.fill(this.delta, 0);
+    this.pickups = 0;
+    this.rejected = 0;
+    int[] north = this.next[0];
+    int[] south = this.next[1];
+    int[] east = this.next[2];
+    int[] west = this.next[3];
+    int p = this.position;
+    long diamonds = 0;
+    long rubies = 0;
+    long saphires = 0;
+    int found = 0;
+    for (int i = from; i < to; i++) {
+      switch (directions[i]) {
+        case 0:
+          p = north[p];
+          break;
+        case 1:
+          p = south[p];
+          break;
+        case 2:
+          p = east[p];
+          break;
+        case 3:
+          p = west[p];
+          break;
+        default:
+          p = NO_PATH;
+      }
+      if (p == NO_PATH) {
+        throw new IllegalArgumentException("Invalid move by the player at move " + i);
+      }
+      int t = this.treasure[p];
+      if (t != 0) {
+        found++;
+        diamonds += t & MASK;
+        rubies += (t >>> BITS) & MASK;
+        saphires += (t >>> (2 * BITS)) & MASK;
+      }
+    }
+    this.position = p;
+    this.delta[Treasure.DIAMOND.ordinal()] = diamonds;
+    this.delta[Treasure.RUBY.ordinal()] = rubies;
+    this.delta[Treasure.SAPHIRE.ordinal()] = saphires;
+    this.pickups = found;
+    return p;
+  }
+
+  /**
+   * Applies part of a recorded sequence of inputs the way {@link IDungeon#stepPlayer(int)}
+   * reads them. An input is the number, from 1, of a direction among the ones the node the
+   * engine is on offers. Any other input is rejected and the engine stays where it is. Once
+   * the engine reaches the stop node no more inputs are read.
+   *
+   * @param inputs The inputs.
+   * @param from The index of the first input to read.
+   * @param to The index after the last input to read.
+   * @param stop The node id that ends the game, or {@link #NO_PATH} to read every input.
+   * @return The number of inputs read.
+   */
+  public int stepBatch(byte[] inputs, int from, int to, int stop) {
+    if (inputs == null || from < 0 || to > inputs.length || from > to) {
+      throw new IllegalArgumentException("Enter valid inputs");
+    }
+    int p = this.position;
+    int read = from;
+    int missed = 0;
+    int found = 0;
+    long diamonds = 0;
+    long rubies = 0;
+    long saphires = 0;
+    while (read < to && p != stop) {
+      int k = inputs[read++] - 1;
+      int d = k < 0 || k >= DIRECTIONS ? NO_PATH : this.offered[DIRECTIONS * p + k];
+      if (d == NO_PATH) {
+        missed++;
+        continue;
+      }
+      p = this.next[d][p];
+      int t = this.treasure[p];
+      if (t != 0) {
+        found++;
+        diamonds += t & MASK;
+        rubies += (t >>> BITS) & MASK;
+        saphires += (t >>> (2 * BITS)) & MASK;
+      }
+    }
+    this.position = p;
+    this.delta[Treasure.DIAMOND.ordinal()] = diamonds;
+    this.delta[Treasure.RUBY.ordinal()] = rubies;
+    this.delta[Treasure.SAPHIRE.ordinal()] = saphires;
+    this.pickups = found;
+    this.rejected = missed;
+    return read - from;
+  }
+
+  /**
+   * Gets how much of one kind of treasure the last batch collected.
+   *
+   * @param t The kind of treasure.
+   * @return The number collected.
+   */
+  public long getDelta(Treasure t) {
+    return this.delta[t.ordinal()];
+  }
+
+  /**
+   * Gets the number of nodes with treasure the last batch entered.
+   *
+   * @return The number of pickups.
+   */
+  public int getPickups() {
+    return this.pickups;
+  }
+
+  /**
+   * Gets the number of inputs the last batch rejected.
+   *
+   * @return The number of rejected inputs.
+   */
+  public int getRejected() {
+    return this.rejected;
+  }
+}
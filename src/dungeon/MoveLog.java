@@ -0,0 +1,182 @@
+package dungeon;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.Arrays;
+
+/**
+ * A recorded game: the parameters and seed its dungeon was built from and every input the
+ * player gave to {@link IDungeon#playerMovement(int)}, one byte per move. Inputs that are not
+ * a valid direction are kept, because the game answered them too. All numbers are written
+ * big-endian.
+ *
+ * <pre>
+ * int magic       'DMOV'
+ * int version
+ * int rows
+ * int cols
+ * int flags       bit 0 set for a wrapping dungeon
+ * int interconnectivity
+ * int percentageOfTreasure
+ * long seed
+ * int count       number of moves
+ * byte[count] moves
+ * </pre>
+ *
+ * @author anush
+ *
+ */
+public final class MoveLog {
+
+  public static final int MAGIC = 0x444D4F56;
+  public static final int VERSION = 1;
+
+  private final DungeonKey key;
+  private final byte[] moves;
+
+  /**
+   * Construct a move log.
+   *
+   * @param key The parameters and seed of the dungeon.
+   * @param moves The input of every move.
+   */
+  public MoveLog(DungeonKey key, byte[] moves) {
+    if (key == null || moves == null) {
+      throw new IllegalArgumentException("Enter valid inputs");
+    }
+    this.key = key;
+    this.moves = moves.clone();
+  }
+
+  public DungeonKey getKey() {
+    return this.key;
+  }
+
+  public int getMoveCount() {
+    return this.moves.length;
+  }
+
+  /**
+   * Gets the input of one move.
+   *
+   * @param index The number of the move, starting at 0.
+   * @return The input as given to {@link IDungeon#playerMovement(int)}.
+   */
+  public int getMove(int index) {
+    return this.moves[index];
+  }
+
+  /**
+   * Gets the inputs without copying them. They must not be changed.
+   *
+   * @return The input of every move.
+   */
+  byte[] getMoves() {
+    return this.moves;
+  }
+
+  /**
+   * Writes the log.
+   *
+   * @param out Where to write to. It is flushed but not closed.
+   * @throws IOException If writing fails.
+   */
+  public void writeTo(OutputStream out) throws IOException {
+    DataOutputStream data = new DataOutputStream(new BufferedOutputStream(out));
+    data.writeInt(MAGIC);
+    data.writeInt(VERSION);
+    data.writeInt(this.key.getRows());
+    data.writeInt(this.key.getCols());
+    data.writeInt(this.key.getIsWrapping() ? DungeonFormat.FLAG_WRAPPING : 0);
+    data.writeInt(this.key.getInterconnectivity());
+    data.writeInt(this.key.getPercentageOfTreasure());
+    data.writeLong(this.key.getSeed());
+    data.writeInt(this.moves.length);
+    data.write(this.moves);
+    data.flush();
+  }
+
+  /**
+   * Reads a log written by {@link #writeTo(OutputStream)}.
+   *
+   * @param in Where to read from. Only the bytes of one log are read.
+   * @return The log.
+   * @throws IOException If reading fails or the bytes are not a move log.
+   */
+  public static MoveLog readFrom(InputStream in) throws IOException {
+    DataInputStream data = new DataInputStream(in);
+    if (data.readInt() != MAGIC) {
+      throw new IOException("Not a move log");
+    }
+    int version = data.readInt();
+    if (version != VERSION) {
+      throw new IOException("Unsupported move log version " + version);
+    }
+    int rows = data.readInt();
+    int cols = data.readInt();
+    boolean isWrapping = (data.readInt() & DungeonFormat.FLAG_WRAPPING) != 0;
+    int interconnectivity = data.readInt();
+    int percentageOfTreasure = data.readInt();
+    long seed = data.readLong();
+    int count = data.readInt();
+    if (count < 0) {
+      throw new IOException("Move log has a negative length");
+    }
+    byte[] moves = new byte[count];
+    data.readFully(moves);
+    try {
+      return new MoveLog(new DungeonKey(rows, cols, isWrapping, interconnectivity,
+          percentageOfTreasure, seed), moves);
+    } catch (IllegalArgumentException e) {
+      throw new IOException("Move log has invalid parameters", e);
+    }
+  }
+
+  /**
+   * Reads a log from a file.
+   *
+   * @param file The file to read.
+   * @return The log.
+   * @throws IOException If reading fails or the file is not a move log.
+   */
+  public static MoveLog read(File file) throws IOException {
+    if (file == null) {
+      throw new IllegalArgumentException("Enter valid inputs");
+    }
+    try (InputStream in = new BufferedInputStream(new FileInputStream(file))) {
+      return readFrom(in);
+    } catch (EOFException e) {
+      throw new IOException("Move log is truncated: " + file, e);
+    }
+  }
+
+  @Override
+  public boolean equals(Object o) {
+    if (this == o) {
+      return true;
+    }
+    if (!(o instanceof MoveLog)) {
+      return false;
+    }
+    MoveLog that = (MoveLog) o;
+    return this.key.equals(that.key) && Arrays.equals(this.moves, that.moves);
+  }
+
+  @Override
+  public int hashCode() {
+    return 31 * this.key.hashCode() + Arrays.hashCode(this.moves);
+  }
+
+  @Override
+  public String toString() {
+    return this.key + " with " + this.moves.length + " moves";
+  }
+}
@@ -20,9 +20,8 @@ public class Node implements INode {
   private boolean west;
   private int count;
   private LocationType type;
-  private List<Treasure> treasure;
+  private int treasure;
   private List<Directions> availableDirections;
-  private List<Treasure> tempTreasures;
   
   /**
    * Constructing a node.
@@ -39,9 +38,7 @@ public class Node implements INode {
     this.south = false;
     this.east = false;
     this.west = false;
-    treasure = new ArrayList<>();
     availableDirections = new ArrayList<>();
-    tempTreasures = new ArrayList<>();
   }
   
   @Override
@@ -106,7 +103,7 @@ public class Node implements INode {
   @Override
   public void setWest() {
     this.west = true;
-    if (!this.availableDirections.contains(Directions.East)) {
+    if (!this.availableDirections.contains(Directions.West)) {
       this.availableDirections.add(Directions.West);
     }
   }
@@ -128,7 +125,7 @@ public class Node implements INode {
   
   @Override
   public void setTreasure(Treasure t) {
-    this.treasure.add(t);
+    this.treasure = TreasureLedger.add(this.treasure, t);
   }
   
   @Override
@@ -151,7 +148,7 @@ public class Node implements INode {
     StringBuilder sb = new StringBuilder();
     sb.append("Type(" + this.type + ", " + this.count + ")");
     if (this.getType() == LocationType.CAVE) {
-      sb.append("\nTreasures: " + this.treasure);
+      sb.append("\nTreasures: " + TreasureLedger.toList(this.treasure));
     }
     return sb.toString();
   }
@@ -169,11 +166,12 @@ public class Node implements INode {
   
   @Override
   public List<Treasure> getTreasures() { 
-    tempTreasures.addAll(treasure);
-    if (this.treasure.size() > 0) {
-      this.treasure.clear();
-    }
-    return new ArrayList<>(tempTreasures);
+    return TreasureLedger.toList(getTreasureCounts());
+  }
+
+  @Override
+  public int getTreasureCounts() {
+    return this.treasure;
   }
   
 }
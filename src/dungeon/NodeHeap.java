@@ -0,0 +1,81 @@
+package dungeon;
+
+import java.util.Arrays;
+
+/**
+ * A binary min heap of node ids for best first searches. Every entry is one long holding the
+ * priority in the high half and the node id in the low half, so entries with equal priority
+ * come out by node id and searches are repeatable. A node may be added more than once; the
+ * search skips the stale entries. The buffer is kept when the heap is cleared, so a search
+ * that is run again allocates nothing.
+ *
+ * @author anush
+ *
+ */
+final class NodeHeap {
+
+  private long[] heap;
+  private int size;
+
+  NodeHeap() {
+    this.heap = new long[16];
+  }
+
+  boolean isEmpty() {
+    return this.size == 0;
+  }
+
+  void clear() {
+    this.size = 0;
+  }
+
+  /**
+   * Adds a node.
+   *
+   * @param priority The priority, which must not be negative.
+   * @param v The node id.
+   */
+  void push(int priority, int v) {
+    if (this.size == this.heap.length) {
+      this.heap = Arrays.copyOf(this.heap, 2 * this.size);
+    }
+    long entry = ((long) priority << 32) | v;
+    int i = this.size++;
+    while (i > 0) {
+      int up = (i - 1) >>> 1;
+      if (this.heap[up] <= entry) {
+        break;
+      }
+      this.heap[i] = this.heap[up];
+      i = up;
+    }
+    this.heap[i] = entry;
+  }
+
+  /**
+   * Removes the node with the lowest priority.
+   *
+   * @return The node id.
+   */
+  int pop() {
+    int top = (int) this.heap[0];
+    long last = this.heap[--this.size];
+    int i = 0;
+    while (true) {
+      int child = 2 * i + 1;
+      if (child >= this.size) {
+        break;
+      }
+      if (child + 1 < this.size && this.heap[child + 1] < this.heap[child]) {
+        child++;
+      }
+      if (last <= this.heap[child]) {
+        break;
+      }
+      this.heap[i] = this.heap[child];
+      i = child;
+    }
+    this.heap[i] = last;
+    return top;
+  }
+}
@@ -0,0 +1,197 @@
+package dungeon;
+
+import java.io.IOException;
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.RandomAccess;
+
+/**
+ * A dungeon that stores every node as one packed byte (see {@link CellMask}) and hands out
+ * {@link CellNode} views on demand. Subclasses decide where the bytes live, for example in a
+ * heap array or in a mapped file, and the node views, the graph and the printing are shared.
+ *
+ * <p>Every node owns the edge to its south and to its east neighbour, so edge 2 * id leads
+ * south and edge 2 * id + 1 leads east.
+ *
+ * @author anush
+ *
+ */
+public abstract class PackedDungeon extends AbstractDungeon {
+
+  protected final int vertices;
+
+  /**
+   * Sets up the shared state of a packed dungeon.
+   *
+   * @param rows Number of rows we want in a dungeon.
+   * @param cols Number of columns we want in a dungeon.
+   * @param isWrapping A boolean value that decides whether the dungeon is wrapping or non-wrapping.
+   * @param r This is a parameter for randomness. It is used for implementation and testing.
+   * @param selection How the start and end caves of the player are picked.
+   */
+  protected PackedDungeon(int rows, int cols, boolean isWrapping, RandomInterface r,
+      StartEndSelection selection) {
+    super(rows, cols, isWrapping, r, selection);
+    if (rows < 1 || cols < 1 || (long) rows * cols > Integer.MAX_VALUE / 2) {
+      throw new IllegalArgumentException("Invalid dungeon size");
+    }
+    this.vertices = rows * cols;
+  }
+
+  /**
+   * Reads the packed byte of a node.
+   *
+   * @param nid The node id.
+   * @return The packed node as an unsigned value.
+   */
+  abstract int cell(int nid);
+
+  /**
+   * Sets bits in the packed byte of a node.
+   *
+   * @param nid The node id.
+   * @param bits The bits to set.
+   */
+  abstract void setBits(int nid, int bits);
+
+  /**
+   * Clears bits in the packed byte of a node.
+   *
+   * @param nid The node id.
+   * @param bits The bits to clear.
+   */
+  abstract void clearBits(int nid, int bits);
+
+  /**
+   * Checks whether an edge id belongs to an edge that may be part of the dungeon.
+   *
+   * @param edge The edge id.
+   * @return True if the edge may exist.
+   */
+  protected abstract boolean isValidEdge(int edge);
+
+  /**
+   * Checks whether an edge is a path of the dungeon.
+   *
+   * @param edge The edge id.
+   * @return True if a player can walk along the edge.
+   */
+  protected abstract boolean isOpen(int edge);
+
+  protected int neighbor(int nid, int direction) {
+    int row = nid / this.cols;
+    int col = nid % this.cols;
+    switch (direction) {
+      case CellMask.NORTH:
+        return row == 0 ? nid + (this.rows - 1) * this.cols : nid - this.cols;
+      case CellMask.SOUTH:
+        return row == this.rows - 1 ? nid - (this.rows - 1) * this.cols : nid + this.cols;
+      case CellMask.EAST:
+        return col == this.cols - 1 ? nid - (this.cols - 1) : nid + 1;
+      default:
+        return col == 0 ? nid + (this.cols - 1) : nid - 1;
+    }
+  }
+
+  protected int edgeEnd(int edge) {
+    return neighbor(edge >>> 1, (edge & 1) == 0 ? CellMask.SOUTH : CellMask.EAST);
+  }
+
+  @Override
+  protected int packedCell(int nid) {
+    return cell(nid);
+  }
+
+  @Override
+  public List<INode> getCaveList() {
+    List<INode> caves = new ArrayList<>();
+    for (int i = 0; i < this.vertices; i++) {
+      if (isCave(i)) {
+        caves.add(getNode(i));
+      }
+    }
+    return caves;
+  }
+
+  // -------------------------Views for the shared dungeon code-------------------------
+
+  @Override
+  protected INode getNode(int nid) {
+    return new CellNode(this, nid);
+  }
+
+  @Override
+  protected boolean isCave(int nid) {
+    return (cell(nid) & CellMask.CAVE) != 0;
+  }
+
+  @Override
+  protected IGraph getGraph() {
+    return new CellGraph();
+  }
+
+  @Override
+  protected List<INode> getAllNodes() {
+    return new NodeList();
+  }
+
+  /**
+   * Reads the neighbours of a node straight from its direction bits.
+   */
+  private class CellGraph implements IGraph {
+
+    @Override
+    public int getVertices() {
+      return vertices;
+    }
+
+    @Override
+    public int getDegree(int v) {
+      return CellMask.degree(cell(v));
+    }
+
+    @Override
+    public int getNeighbor(int v, int i) {
+      int directions = cell(v) & CellMask.DIRECTIONS;
+      for (int k = 0; k < i; k++) {
+        directions &= directions - 1;
+      }
+      return neighbor(v, Integer.lowestOneBit(directions));
+    }
+  }
+
+  /**
+   * A list of node views that creates each view when it is asked for.
+   */
+  private class NodeList extends AbstractList<INode> implements RandomAccess {
+
+    @Override
+    public INode get(int index) {
+      if (index < 0 || index >= vertices) {
+        throw new IndexOutOfBoundsException("No node " + index);
+      }
+      return getNode(index);
+    }
+
+    @Override
+    public int size() {
+      return vertices;
+    }
+  }
+
+  // -------------------------Printing the dungeon--------------------------------------
+
+  protected void printEdges(Appendable out, String title, boolean open, boolean includeClosed)
+      throws IOException {
+    RowBuffer buffer = new RowBuffer(64);
+    buffer.append(title);
+    for (int edge = 0; edge < 2 * this.vertices; edge++) {
+      if (isValidEdge(edge) && (isOpen(edge) ? open : includeClosed)) {
+        buffer.append(new Path(getNode(edge >>> 1), getNode(edgeEnd(edge))).toString())
+            .append('\n').flushIfFull(out);
+      }
+    }
+    buffer.flush(out);
+  }
+}
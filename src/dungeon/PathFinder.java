@@ -0,0 +1,285 @@
+package dungeon;
+
+import java.util.Arrays;
+
+/**
+ * Answers path questions for the player: the shortest path between two nodes and, once an
+ * exit is set, how far every node is from it and which way to go. The graph holds the paths
+ * of the dungeon. Every path can be walked both ways, so the graph is undirected. The graph
+ * is copied when the path finder is made.
+ *
+ * <p>Shortest paths are found with A*. The estimate is the Manhattan distance between the
+ * two nodes, measured around the edges of a wrapping dungeon the same way
+ * {@link Player#move(Directions)} wraps, so it never overestimates and the first path found
+ * is a shortest one. The open set is a binary heap of primitive longs and the closed set is a
+ * stamp per node, and both are kept between queries, so a query allocates nothing but its
+ * answer.
+ *
+ * <p>The exit field is one breadth first search from the exit. After that the distance to the exit and the best direction from any node are
+ * array reads.
+ *
+ * <p>A path finder keeps search buffers, so it must only be used by one thread at a time.
+ *
+ * @author anush
+ *
+ */
+public class PathFinder {
+
+  private static final Directions[] DIRECTIONS = Directions.values();
+
+  private final int[] offsets;
+  private final int[] targets;
+  private final int rows;
+  private final int cols;
+  private final boolean isWrapping;
+
+  private final int[] cost;
+  private final int[] parent;
+  private final int[] seen;
+  private final int[] closed;
+  private final NodeHeap open;
+  private int stamp;
+
+  private int exit;
+  private int[] exitDistance;
+
+  /**
+   * Construct a path finder for a dungeon.
+   *
+   * @param graph The paths between the nodes of the dungeon.
+   * @param rows Number of rows in the dungeon.
+   * @param cols Number of columns in the dungeon.
+   * @param isWrapping Whether the dungeon is wrapping.
+   */
+  public PathFinder(IGraph graph, int rows, int cols, boolean isWrapping) {
+    if (graph == null || rows < 1 || cols < 1 || graph.getVertices() != rows * cols) {
+      throw new IllegalArgumentException("Enter valid inputs");
+    }
+    this.rows = rows;
+    this.cols = cols;
+    this.isWrapping = isWrapping;
+    int vertices = graph.getVertices();
+    this.offsets = new int[vertices + 1];
+    for (int v = 0; v < vertices; v++) {
+      this.offsets[v + 1] = this.offsets[v] + graph.getDegree(v);
+    }
+    this.targets = new int[this.offsets[vertices]];
+    for (int v = 0; v < vertices; v++) {
+      for (int i = this.offsets[v]; i < this.offsets[v + 1]; i++) {
+        this.targets[i] = graph.getNeighbor(v, i - this.offsets[v]);
+      }
+    }
+    this.cost = new int[vertices];
+    this.parent = new int[vertices];
+    this.seen = new int[vertices];
+    this.closed = new int[vertices];
+    this.open = new NodeHeap();
+    this.exit = DungeonFormat.NO_NODE;
+  }
+
+  /**
+   * Gets the node a step leads to, wrapping around the edges like a player does. The step
+   * is only a move the player can make if the two nodes are connected.
+   *
+   * @param nid The node id.
+   * @param d The direction of the step.
+   * @return The node id the step leads to.
+   */
+  public int step(int nid, Directions d) {
+    return step(nid, d, this.rows, this.cols);
+  }
+
+  static int step(int nid, Directions d, int rows, int cols) {
+    int row = nid / cols;
+    int col = nid % cols;
+    switch (d) {
+      case North:
+        return row == 0 ? nid + (rows - 1) * cols : nid - cols;
+      case South:
+        return row == rows - 1 ? nid - (rows - 1) * cols : nid + cols;
+      case East:
+        return col == cols - 1 ? nid - (cols - 1) : nid + 1;
+      default:
+        return col == 0 ? nid + (cols - 1) : nid - 1;
+    }
+  }
+
+  /**
+   * Estimates the number of steps between two nodes. It is the exact distance in a
+   * dungeon where every path is open.
+   *
+   * @param from The first node id.
+   * @param to The second node id.
+   * @return The Manhattan distance, around the edges if the dungeon is wrapping.
+   */
+  public int estimate(int from, int to) {
+    int dr = Math.abs(from / this.cols - to / this.cols);
+    int dc = Math.abs(from % this.cols - to % this.cols);
+    if (this.isWrapping) {
+      dr = Math.min(dr, this.rows - dr);
+      dc = Math.min(dc, this.cols - dc);
+    }
+    return dr + dc;
+  }
+
+  /**
+   * Gets the length of a shortest path between two nodes.
+   *
+   * @param from The node id to start from.
+   * @param to The node id to reach.
+   * @return The number of steps, or {@link DistanceEngine#UNREACHABLE} if there is no path.
+   */
+  public int distance(int from, int to) {
+    return search(from, to) ? this.cost[to] : DistanceEngine.UNREACHABLE;
+  }
+
+  /**
+   * Finds a shortest path between two nodes.
+   *
+   * @param from The node id to start from.
+   * @param to The node id to reach.
+   * @return The node ids along the path including both ends, or an empty array if there is
+   *        no path.
+   */
+  public int[] shortestPath(int from, int to) {
+    if (!search(from, to)) {
+      return new int[0];
+    }
+    int[] path = new int[this.cost[to] + 1];
+    for (int i = path.length - 1, v = to; i >= 0; i--, v = this.parent[v]) {
+      path[i] = v;
+    }
+    return path;
+  }
+
+  private boolean search(int from, int to) {
+    int vertices = this.cost.length;
+    if (from < 0 || from >= vertices || to < 0 || to >= vertices) {
+      throw new IllegalArgumentException("Enter valid inputs");
+    }
+    nextStamp();
+    this.cost[from] = 0;
+    this.parent[from] = from;
+    this.seen[from] = this.stamp;
+    this.open.clear();
+    this.open.push(estimate(from, to), from);
+
+    while (!this.open.isEmpty()) {
+      int u = this.open.pop();
+      if (this.closed[u] == this.stamp) {
+        continue;
+      }
+      if (u == to) {
+        return true;
+      }
+      this.closed[u] = this.stamp;
+      int next = this.cost[u] + 1;
+      for (int i = this.offsets[u]; i < this.offsets[u + 1]; i++) {
+        int v = this.targets[i];
+        if (this.closed[v] == this.stamp
+            || (this.seen[v] == this.stamp && this.cost[v] <= next)) {
+          continue;
+        }
+        this.seen[v] = this.stamp;
+        this.cost[v] = next;
+        this.parent[v] = u;
+        this.open.push(next + estimate(v, to), v);
+      }
+    }
+    return false;
+  }
+
+  private void nextStamp() {
+    if (++this.stamp == Integer.MAX_VALUE) {
+      Arrays.fill(this.seen, 0);
+      Arrays.fill(this.closed, 0);
+      this.stamp = 1;
+    }
+  }
+
+  /**
+   * Sets the node the exit field points to and runs one breadth first search from it. Setting
+   * the same exit again does nothing.
+   *
+   * @param end The node id of the exit.
+   */
+  public void setExit(int end) {
+    int vertices = this.cost.length;
+    if (end < 0 || end >= vertices) {
+      throw new IllegalArgumentException("Enter valid inputs");
+    }
+    if (end == this.exit) {
+      return;
+    }
+    if (this.exitDistance == null) {
+      this.exitDistance = new int[vertices];
+    }
+    Arrays.fill(this.exitDistance, DistanceEngine.UNREACHABLE);
+    // The parent of a node only matters during a search, so its buffer serves as the queue.
+    int[] queue = this.parent;
+    int head = 0;
+    int tail = 0;
+    this.exitDistance[end] = 0;
+    queue[tail++] = end;
+    while (head < tail) {
+      int v = queue[head++];
+      int next = this.exitDistance[v] + 1;
+      for (int i = this.offsets[v]; i < this.offsets[v + 1]; i++) {
+        int u = this.targets[i];
+        if (this.exitDistance[u] == DistanceEngine.UNREACHABLE) {
+          this.exitDistance[u] = next;
+          queue[tail++] = u;
+        }
+      }
+    }
+    this.exit = end;
+  }
+
+  public int getExit() {
+    return this.exit;
+  }
+
+  /**
+   * Gets the number of steps from a node to the exit.
+   *
+   * @param nid The node id.
+   * @return The number of steps, or {@link DistanceEngine#UNREACHABLE} if the exit cannot be
+   *        reached.
+   */
+  public int distanceToExit(int nid) {
+    if (this.exitDistance == null) {
+      throw new IllegalStateException("No exit was set");
+    }
+    return this.exitDistance[nid];
+  }
+
+  /**
+   * Gets the direction of a step from a node towards the exit. If several steps are equally
+   * good the first in the order of {@link Directions} is taken.
+   *
+   * @param nid The node id.
+   * @return The direction to take, or null at the exit or if the exit cannot be reached.
+   */
+  public Directions nextDirection(int nid) {
+    int distance = distanceToExit(nid);
+    if (distance == 0 || distance == DistanceEngine.UNREACHABLE) {
+      return null;
+    }
+    for (Directions d : DIRECTIONS) {
+      int v = step(nid, d);
+      if (this.exitDistance[v] == distance - 1 && isConnected(nid, v)) {
+        return d;
+      }
+    }
+    return null;
+  }
+
+  private boolean isConnected(int u, int v) {
+    for (int i = this.offsets[u]; i < this.offsets[u + 1]; i++) {
+      if (this.targets[i] == v) {
+        return true;
+      }
+    }
+    return false;
+  }
+}
@@ -1,6 +1,8 @@
 package dungeon;
 
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.List;
 
 /**
@@ -13,35 +15,82 @@ import java.util.List;
 public class Player implements IPlayer {
 
   private INode current;
-  private final List<INode> allNodesInDungeon;
+  private List<INode> allNodesInDungeon;
   private final int numberOfRowsInDungeon;
   private final int numberOfColumnsInDungeon;
-  private List<List<Treasure>> playerTreasures;
+  private final boolean isWrapping;
+  private final int interconnectivity;
+  private int[] pickups;
+  private int pickupCount;
+  private final TreasureLedger collected;
 
   /**
-   * A constructor to create a player.
+   * A constructor to create a player. Its moves report the dungeon as not wrapping and its
+   * interconnectivity as unknown.
    * 
    * @param current The current node in which the player is residing.
    * @param rows Number of rows in the dungeon.
    * @param cols Number of columns in the dungeon.
    */
   public Player(INode current, int rows, int cols) {
+    this(current, rows, cols, false, -1);
+  }
+
+  /**
+   * A constructor to create a player that reports the dungeon it is in with its moves.
+   * 
+   * @param current The current node in which the player is residing.
+   * @param rows Number of rows in the dungeon.
+   * @param cols Number of columns in the dungeon.
+   * @param isWrapping Whether the dungeon is wrapping.
+   * @param interconnectivity The interconnectivity of the dungeon, or -1 if it is not known.
+   */
+  public Player(INode current, int rows, int cols, boolean isWrapping, int interconnectivity) {
     if (current == null) {
       throw new IllegalArgumentException("Invalid input");
     }
     this.current = current;
     this.numberOfRowsInDungeon = rows;
     this.numberOfColumnsInDungeon = cols;
+    this.isWrapping = isWrapping;
+    this.interconnectivity = interconnectivity;
     allNodesInDungeon = new ArrayList<>();
-    playerTreasures = new ArrayList<>();
+    pickups = new int[4];
+    collected = new TreasureLedger();
   }
 
   @Override
   public String move(Directions d) {
     int prevId = this.current.getNid();
+    int found = this.step(d);
+
+    StringBuilder sb = new StringBuilder();
+    
+    if (found != 0) {
+      sb.append("Treasures Available at " + prevId + ": " + TreasureLedger.toList(found) 
+          + "\n");
+    }
+    
+    sb.append("Player Moved from: " + prevId + "\nPlayer Moved To: " + this.current.getNid() + "\n" 
+        + "Direction Moved: " + d + "\n");
+
+
+    if (found != 0) {
+      sb.append("Player collected treasures:" + TreasureLedger.toList(found));
+    }
+    return sb.toString();
+  }
 
-    switch (d.getMove()) {
-      case "n":
+  /**
+   * Every move is reported as a {@link PlayerMoveEvent} while a flight recording is running.
+   */
+  @Override
+  public int step(Directions d) {
+    PlayerMoveEvent event = new PlayerMoveEvent();
+    event.begin();
+    int from = this.current.getNid();
+    switch (d) {
+      case North:
         if (this.current.getRow() == 0) {
           this.current = this.allNodesInDungeon.get(this.current.getNid()
               + ((this.numberOfRowsInDungeon - 1) * this.numberOfColumnsInDungeon));
@@ -51,7 +100,7 @@ public class Player implements IPlayer {
         }
         break;
 
-      case "s":
+      case South:
         if (this.current.getRow() == (this.numberOfRowsInDungeon - 1)) {
           this.current = this.allNodesInDungeon.get(this.current.getNid()
               - ((this.numberOfRowsInDungeon - 1) * this.numberOfColumnsInDungeon));
@@ -61,7 +110,7 @@ public class Player implements IPlayer {
         }
         break;
 
-      case "e":
+      case East:
         if (this.current.getCol() == (this.numberOfColumnsInDungeon - 1)) {
           this.current = this.allNodesInDungeon
               .get(this.current.getNid() - (this.numberOfColumnsInDungeon - 1));
@@ -71,7 +120,7 @@ public class Player implements IPlayer {
 
         break;
 
-      case "w":
+      case West:
         if (this.current.getCol() == 0) {
           this.current = this.allNodesInDungeon
               .get(this.current.getNid() + (this.numberOfColumnsInDungeon - 1));
@@ -83,27 +132,26 @@ public class Player implements IPlayer {
       default: 
         throw new IllegalArgumentException("Invalid move by the player.");
     }
-    List<Treasure> tempTreasure = new ArrayList<>();
-    tempTreasure.addAll(this.current.getTreasures());
-    if (tempTreasure.size() > 0) {
-      this.playerTreasures.add(tempTreasure);
+    // The player collects every treasure of the node it enters. Reading the node does not
+    // change it, so the treasure is there again the next time the player comes back.
+    int found = this.current.getTreasureCounts();
+    if (found != 0) {
+      this.pickUp(found);
     }
-
-    StringBuilder sb = new StringBuilder();
-    
-    if (tempTreasure.size() > 0) {
-      sb.append("Treasures Available at " + prevId + ": " + this.current.getTreasures().toString() 
-          + "\n");
-    }
-    
-    sb.append("Player Moved from: " + prevId + "\nPlayer Moved To: " + this.current.getNid() + "\n" 
-        + "Direction Moved: " + d + "\n");
-
-
-    if (tempTreasure.size() > 0) {
-      sb.append("Player collected treasures:" + this.current.getTreasures().toString());
+    if (event.shouldCommit()) {
+      event.rows = this.numberOfRowsInDungeon;
+      event.cols = this.numberOfColumnsInDungeon;
+      event.wrapping = this.isWrapping;
+      event.interconnectivity = this.interconnectivity;
+      event.from = from;
+      event.to = this.current.getNid();
+      event.direction = d.name();
+      for (Treasure t : Treasure.values()) {
+        event.treasure += TreasureLedger.count(found, t);
+      }
+      event.commit();
     }
-    return sb.toString();
+    return found;
   }
 
   @Override
@@ -111,18 +159,44 @@ public class Player implements IPlayer {
     return this.current;
   }
 
+  /**
+   * The player keeps a read-only view of the given list rather than a copy, so a dungeon that
+   * creates its nodes on demand does not have to build them all up front.
+   */
   @Override
   public void setAllNodes(List<INode> x) {
-    this.allNodesInDungeon.addAll(x);
+    this.allNodesInDungeon = Collections.unmodifiableList(x);
+  }
+
+  private void pickUp(int counts) {
+    if (this.pickupCount == this.pickups.length) {
+      this.pickups = Arrays.copyOf(this.pickups, 2 * this.pickupCount);
+    }
+    this.pickups[this.pickupCount++] = counts;
+    this.collected.record(counts);
   }
 
   @Override
   public List<List<Treasure>> getAllPickedTreasures() {
-    return new ArrayList<>(this.playerTreasures);
+    List<List<Treasure>> treasures = new ArrayList<>();
+    for (int i = 0; i < this.pickupCount; i++) {
+      treasures.add(TreasureLedger.toList(this.pickups[i]));
+    }
+    return treasures;
   }
 
   @Override
   public void setPickedTreasures(List<Treasure> startTreasure) {
-    this.playerTreasures.add(startTreasure);
+    this.pickUp(TreasureLedger.fromList(startTreasure));
+  }
+
+  @Override
+  public long getCollected(Treasure t) {
+    return this.collected.getTotal(t);
+  }
+
+  @Override
+  public int getPickupCount() {
+    return this.pickupCount;
   }
 }
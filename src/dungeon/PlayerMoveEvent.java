@@ -0,0 +1,48 @@
+package dungeon;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * A flight recorder event for one move of a player.
+ *
+ * <p>Recordings can be read with {@code jfr print --events dungeon.PlayerMove}.
+ *
+ * @author anush
+ *
+ */
+@Name("dungeon.PlayerMove")
+@Label("Player Move")
+@Category("Dungeon")
+@Description("One move of a player")
+final class PlayerMoveEvent extends Event {
+
+  @Label("Rows")
+  int rows;
+
+  @Label("Columns")
+  int cols;
+
+  @Label("Wrapping")
+  boolean wrapping;
+
+  @Label("Interconnectivity")
+  @Description("The number of extra paths asked for, or -1 if it is not known")
+  int interconnectivity;
+
+  @Label("From")
+  int from;
+
+  @Label("To")
+  int to;
+
+  @Label("Direction")
+  String direction;
+
+  @Label("Treasure Found")
+  @Description("The number of treasures picked up on the node moved to")
+  int treasure;
+}
@@ -4,18 +4,18 @@ import java.util.Random;
 
 /**
  * Generates a random number within the specified range.
- * Used for implementation purposes.
+ * Used for implementation purposes. Every game is different; use {@link SeededRandom} to
+ * build the same dungeon again.
  * 
  * @author anush
  *
  */
 public class RandomGenerator implements RandomInterface {
 
-  
-    
+  private final Random r = new Random();
+
   @Override
   public int getInt(int x) {
-    Random r = new Random();
     return r.nextInt(x);
   }
 }
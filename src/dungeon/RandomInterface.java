@@ -16,4 +16,16 @@ public interface RandomInterface {
    * @return A random number.
    */
   int getInt(int x);
+
+  /**
+   * Creates an independent stream of random numbers, for example for work that runs on
+   * another thread. The new stream is seeded from this one, so the same sequence of calls
+   * always gives the same streams. Seeded implementations override this with a cheaper split.
+   *
+   * @return A new random number generator.
+   */
+  default RandomInterface split() {
+    long seed = ((long) getInt(Integer.MAX_VALUE) << 31) ^ getInt(Integer.MAX_VALUE);
+    return new SeededRandom(seed);
+  }
 }
@@ -0,0 +1,197 @@
+package dungeon;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.function.Function;
+import java.util.function.IntFunction;
+
+/**
+ * Plays recorded games again without a console. Every log rebuilds its dungeon from the
+ * recorded parameters and seed the same way {@code Driver} does, then feeds the recorded
+ * inputs through {@link IDungeon#stepPlayer(int)}, which follows the rules of
+ * {@link IDungeon#playerMovement(int)} without producing any text. Like the driver, the
+ * replay stops reading inputs once the player reaches the end cave.
+ *
+ * <p>Games recorded on a {@link Dungeon}, the default, are walked on a {@link MoveEngine}
+ * instead of the nodes of the dungeon. The dungeon is still built, once for all the logs of
+ * it, for its paths and for the order its nodes offer directions in, and every log is then
+ * read in a single batch that collects treasure the same way the player does.
+ *
+ * <p>Many logs are replayed at once on the given executor, with at most a fixed number in
+ * progress so only that many dungeons are held in memory.
+ *
+ * @author anush
+ *
+ */
+public class ReplayEngine {
+
+  private final ExecutorService executor;
+  private final int parallelism;
+  private final Function<DungeonKey, IDungeon> factory;
+  private final boolean batched;
+
+  /**
+   * Construct an engine that rebuilds every dungeon as a {@link Dungeon}, like
+   * {@code Driver} does when it is given a seed.
+   *
+   * @param executor Runs the replays. It is not shut down by this class.
+   * @param parallelism The most replays in progress at a time.
+   */
+  public ReplayEngine(ExecutorService executor, int parallelism) {
+    this(executor, parallelism, key -> new Dungeon(key.getRows(), key.getCols(),
+        key.getIsWrapping(), key.getInterconnectivity(), key.getPercentageOfTreasure(),
+        new SeededRandom(key.getSeed()), StartEndSelection.SAMPLED), true);
+  }
+
+  /**
+   * Construct an engine with a custom way to create dungeons. The factory must create the
+   * same kind of dungeon the games were recorded on; the engine runs every building step.
+   *
+   * @param executor Runs the replays. It is not shut down by this class.
+   * @param parallelism The most replays in progress at a time.
+   * @param factory Creates an unbuilt dungeon for a key.
+   */
+  public ReplayEngine(ExecutorService executor, int parallelism,
+      Function<DungeonKey, IDungeon> factory) {
+    this(executor, parallelism, factory, false);
+  }
+
+  private ReplayEngine(ExecutorService executor, int parallelism,
+      Function<DungeonKey, IDungeon> factory, boolean batched) {
+    if (executor == null || parallelism < 1 || factory == null) {
+      throw new IllegalArgumentException("Enter valid inputs");
+    }
+    this.executor = executor;
+    this.parallelism = parallelism;
+    this.factory = factory;
+    this.batched = batched;
+  }
+
+  /**
+   * Replays one log on the calling thread.
+   *
+   * @param log The recorded game.
+   * @return The state the game finished in.
+   */
+  public ReplayResult replay(MoveLog log) {
+    if (log == null) {
+      throw new IllegalArgumentException("Enter valid inputs");
+    }
+    IDungeon d = BatchGenerator.build(this.factory.apply(log.getKey()), null);
+    if (this.batched) {
+      return replayOnEngine(log, (AbstractDungeon) d, new MoveEngine((AbstractDungeon) d));
+    }
+    int start = d.getPlayer().getCurrent().getNid();
+    int applied = 0;
+    int rejected = 0;
+    int read = 0;
+    while (read < log.getMoveCount() && d.hasEnded()) {
+      if (d.stepPlayer(log.getMove(read++))) {
+        applied++;
+      } else {
+        rejected++;
+      }
+    }
+    return new ReplayResult(log.getKey(), start, !d.hasEnded(),
+        d.getPlayer().getCurrent().getNid(), applied, rejected, log.getMoveCount() - read,
+        d.getPlayer());
+  }
+
+  /**
+   * Replays one log on its own fork of a move engine of the dungeon, in a single pass over
+   * the inputs. The player of the dungeon only gives the treasure of the start cave.
+   */
+  private static ReplayResult replayOnEngine(MoveLog log, AbstractDungeon d, MoveEngine shared) {
+    MoveEngine engine = shared.fork();
+    int start = engine.getPosition();
+    int end = d.getStartEndPath().getEnd().getNid();
+    int read = engine.stepBatch(log.getMoves(), 0, log.getMoveCount(), end);
+
+    IPlayer player = d.getPlayer();
+    long[] collected = new long[Treasure.values().length];
+    for (Treasure t : Treasure.values()) {
+      collected[t.ordinal()] = player.getCollected(t) + engine.getDelta(t);
+    }
+    return new ReplayResult(log.getKey(), start, engine.getPosition() == end,
+        engine.getPosition(), read - engine.getRejected(), engine.getRejected(),
+        log.getMoveCount() - read, collected, player.getPickupCount() + engine.getPickups());
+  }
+
+  /**
+   * Replays many logs at once and waits for all of them. Logs of the same dungeon share one
+   * build of it and, for games on a {@link Dungeon}, one move engine.
+   *
+   * @param logs The recorded games.
+   * @return The result of every log, in the same order.
+   * @throws InterruptedException If the calling thread is interrupted while waiting.
+   */
+  public List<ReplayResult> replayAll(List<MoveLog> logs) throws InterruptedException {
+    if (logs == null) {
+      throw new IllegalArgumentException("Enter valid inputs");
+    }
+    if (!this.batched) {
+      return run(logs.size(), i -> replay(logs.get(i)));
+    }
+    Map<DungeonKey, List<Integer>> byKey = new LinkedHashMap<>();
+    for (int i = 0; i < logs.size(); i++) {
+      byKey.computeIfAbsent(logs.get(i).getKey(), key -> new ArrayList<>()).add(i);
+    }
+    List<List<Integer>> groups = new ArrayList<>(byKey.values());
+    ReplayResult[] results = new ReplayResult[logs.size()];
+    BoundedTasks.run(this.executor, this.parallelism, groups.size(), g -> {
+      List<Integer> group = groups.get(g);
+      AbstractDungeon d = (AbstractDungeon) BatchGenerator.build(
+          this.factory.apply(logs.get(group.get(0)).getKey()), null);
+      MoveEngine engine = new MoveEngine(d);
+      for (int i : group) {
+        results[i] = replayOnEngine(logs.get(i), d, engine);
+      }
+    }, "Could not replay the logs");
+    return Arrays.asList(results);
+  }
+
+  /**
+   * Reads and replays many log files at once and waits for all of them. Every file is read
+   * by the thread that replays it, so only the logs in progress are held in memory.
+   *
+   * @param files The files of the recorded games.
+   * @return The result of every file, in the same order.
+   * @throws IOException If a file cannot be read or is not a move log.
+   * @throws InterruptedException If the calling thread is interrupted while waiting.
+   */
+  public List<ReplayResult> replayFiles(List<File> files)
+      throws IOException, InterruptedException {
+    if (files == null) {
+      throw new IllegalArgumentException("Enter valid inputs");
+    }
+    try {
+      return run(files.size(), i -> {
+        try {
+          return replay(MoveLog.read(files.get(i)));
+        } catch (IOException e) {
+          throw new UncheckedIOException(e);
+        }
+      });
+    } catch (IllegalStateException e) {
+      if (e.getCause() instanceof UncheckedIOException) {
+        throw ((UncheckedIOException) e.getCause()).getCause();
+      }
+      throw e;
+    }
+  }
+
+  private List<ReplayResult> run(int count, IntFunction<ReplayResult> task)
+      throws InterruptedException {
+    ReplayResult[] results = new ReplayResult[count];
+    BoundedTasks.run(this.executor, this.parallelism, count,
+        i -> results[i] = task.apply(i), "Could not replay the logs");
+    return Arrays.asList(results);
+  }
+}
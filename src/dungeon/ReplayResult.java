@@ -0,0 +1,187 @@
+package dungeon;
+
+import java.util.Arrays;
+
+/**
+ * The state a replayed game finished in. Two replays of the same log always give equal
+ * results, so comparing digests is enough to tell whether a game still plays the way it was
+ * recorded.
+ *
+ * @author anush
+ *
+ */
+public final class ReplayResult {
+
+  private static final Treasure[] TREASURES = Treasure.values();
+
+  private final DungeonKey key;
+  private final int start;
+  private final boolean finished;
+  private final int finalNode;
+  private final int applied;
+  private final int rejected;
+  private final int unread;
+  private final long[] collected;
+  private final int pickups;
+
+  ReplayResult(DungeonKey key, int start, boolean finished, int finalNode, int applied, int rejected,
+      int unread, IPlayer player) {
+    this(key, start, finished, finalNode, applied, rejected, unread, collectedBy(player),
+        player.getPickupCount());
+  }
+
+  ReplayResult(DungeonKey key, int start, boolean finished, int finalNode, int applied, int rejected,
+      int unread, long[] collected, int pickups) {
+    this.key = key;
+    this.start = start;
+    this.finished = finished;
+    this.finalNode = finalNode;
+    this.applied = applied;
+    this.rejected = rejected;
+    this.unread = unread;
+    this.collected = collected;
+    this.pickups = pickups;
+  }
+
+  private static long[] collectedBy(IPlayer player) {
+    long[] collected = new long[TREASURES.length];
+    for (Treasure t : TREASURES) {
+      collected[t.ordinal()] = player.getCollected(t);
+    }
+    return collected;
+  }
+
+  public DungeonKey getKey() {
+    return this.key;
+  }
+
+  public int getStart() {
+    return this.start;
+  }
+
+  public int getFinalNode() {
+    return this.finalNode;
+  }
+
+  /**
+   * Checks whether the player reached the end cave.
+   *
+   * @return True if the game was finished.
+   */
+  public boolean getFinished() {
+    return this.finished;
+  }
+
+  /**
+   * Gets the number of moves the player made.
+   *
+   * @return The number of valid inputs.
+   */
+  public int getApplied() {
+    return this.applied;
+  }
+
+  /**
+   * Gets the number of inputs that were not a valid direction and were answered with an
+   * error.
+   *
+   * @return The number of invalid inputs.
+   */
+  public int getRejected() {
+    return this.rejected;
+  }
+
+  /**
+   * Gets the number of inputs left in the log after the game ended. The game never read
+   * them.
+   *
+   * @return The number of unread inputs.
+   */
+  public int getUnread() {
+    return this.unread;
+  }
+
+  /**
+   * Gets how much of one kind of treasure the player collected, including the start cave.
+   *
+   * @param t The kind of treasure.
+   * @return The number collected.
+   */
+  public long getCollected(Treasure t) {
+    return this.collected[t.ordinal()];
+  }
+
+  public int getPickups() {
+    return this.pickups;
+  }
+
+  /**
+   * Gets a 64 bit digest of the whole final state, including the parameters of the dungeon.
+   *
+   * @return The digest.
+   */
+  public long getDigest() {
+    long h = mix(this.key.getSeed());
+    h = mix(h ^ this.key.getRows());
+    h = mix(h ^ this.key.getCols());
+    h = mix(h ^ (this.key.getIsWrapping() ? 1 : 0));
+    h = mix(h ^ this.key.getInterconnectivity());
+    h = mix(h ^ this.key.getPercentageOfTreasure());
+    h = mix(h ^ this.start);
+    h = mix(h ^ (this.finished ? 1 : 0));
+    h = mix(h ^ this.finalNode);
+    h = mix(h ^ this.applied);
+    h = mix(h ^ this.rejected);
+    h = mix(h ^ this.unread);
+    for (long c : this.collected) {
+      h = mix(h ^ c);
+    }
+    return mix(h ^ this.pickups);
+  }
+
+  private static long mix(long z) {
+    z = (z + 0x9E3779B97F4A7C15L) * 0xBF58476D1CE4E5B9L;
+    z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+    return z ^ (z >>> 31);
+  }
+
+  @Override
+  public boolean equals(Object o) {
+    if (this == o) {
+      return true;
+    }
+    if (!(o instanceof ReplayResult)) {
+      return false;
+    }
+    ReplayResult that = (ReplayResult) o;
+    return this.key.equals(that.key) && this.start == that.start
+        && this.finished == that.finished
+        && this.finalNode == that.finalNode && this.applied == that.applied
+        && this.rejected == that.rejected && this.unread == that.unread
+        && Arrays.equals(this.collected, that.collected)
+        && this.pickups == that.pickups;
+  }
+
+  @Override
+  public int hashCode() {
+    return Long.hashCode(getDigest());
+  }
+
+  @Override
+  public String toString() {
+    StringBuilder sb = new StringBuilder();
+    sb.append(String.format("%016x ", getDigest()));
+    sb.append(this.key).append(' ');
+    sb.append("start=").append(this.start);
+    sb.append(" final=").append(this.finalNode);
+    sb.append(this.finished ? " finished" : " unfinished");
+    sb.append(" moves=").append(this.applied);
+    sb.append(" rejected=").append(this.rejected);
+    sb.append(" unread=").append(this.unread);
+    for (Treasure t : TREASURES) {
+      sb.append(' ').append(t.getTreasure()).append('=').append(this.collected[t.ordinal()]);
+    }
+    sb.append(" pickups=").append(this.pickups);
+    return sb.toString();
+  }
+}
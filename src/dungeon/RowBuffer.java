@@ -0,0 +1,95 @@
+package dungeon;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.CharBuffer;
+import java.util.Arrays;
+
+/**
+ * A reusable character buffer for printing a dungeon one row at a time. Text is added to
+ * the buffer and written out when a row is done, so printing a large dungeon never builds
+ * the whole text in memory. The buffer grows to the longest row and is then reused.
+ *
+ * @author anush
+ *
+ */
+final class RowBuffer {
+
+  private static final int FLUSH_AT = 8192;
+
+  private char[] chars;
+  private CharBuffer view;
+  private int length;
+
+  RowBuffer(int capacity) {
+    this.chars = new char[Math.max(16, capacity)];
+    this.view = CharBuffer.wrap(this.chars);
+  }
+
+  RowBuffer append(char c) {
+    ensure(1);
+    this.chars[this.length++] = c;
+    return this;
+  }
+
+  RowBuffer append(String s) {
+    ensure(s.length());
+    s.getChars(0, s.length(), this.chars, this.length);
+    this.length += s.length();
+    return this;
+  }
+
+  /**
+   * Adds a number that is not negative without making a string of it.
+   */
+  RowBuffer append(int n) {
+    int digits = 1;
+    for (int rest = n / 10; rest > 0; rest /= 10) {
+      digits++;
+    }
+    ensure(digits);
+    for (int i = this.length + digits - 1; i >= this.length; i--) {
+      this.chars[i] = (char) ('0' + n % 10);
+      n /= 10;
+    }
+    this.length += digits;
+    return this;
+  }
+
+  RowBuffer repeat(char c, int count) {
+    ensure(count);
+    Arrays.fill(this.chars, this.length, this.length + count, c);
+    this.length += count;
+    return this;
+  }
+
+  /**
+   * Writes the buffer out if it holds enough text to be worth a write.
+   */
+  void flushIfFull(Appendable out) throws IOException {
+    if (this.length >= FLUSH_AT) {
+      flush(out);
+    }
+  }
+
+  /**
+   * Writes the buffer out and empties it.
+   */
+  void flush(Appendable out) throws IOException {
+    if (out instanceof Writer) {
+      ((Writer) out).write(this.chars, 0, this.length);
+    } else if (out instanceof StringBuilder) {
+      ((StringBuilder) out).append(this.chars, 0, this.length);
+    } else {
+      out.append(this.view, 0, this.length);
+    }
+    this.length = 0;
+  }
+
+  private void ensure(int more) {
+    if (this.length + more > this.chars.length) {
+      this.chars = Arrays.copyOf(this.chars, Math.max(2 * this.chars.length, this.length + more));
+      this.view = CharBuffer.wrap(this.chars);
+    }
+  }
+}
@@ -0,0 +1,40 @@
+package dungeon;
+
+import java.util.SplittableRandom;
+
+/**
+ * Generates random numbers from a single seeded {@link SplittableRandom}. The same seed
+ * always gives the same numbers and no objects are created per number. An instance must
+ * only be used by one thread at a time; other threads get their own stream from
+ * {@link #split()}.
+ *
+ * @author anush
+ *
+ */
+public class SeededRandom implements RandomInterface {
+
+  private final SplittableRandom random;
+
+  /**
+   * Construct a generator from a seed.
+   *
+   * @param seed The seed of the generator.
+   */
+  public SeededRandom(long seed) {
+    this(new SplittableRandom(seed));
+  }
+
+  private SeededRandom(SplittableRandom random) {
+    this.random = random;
+  }
+
+  @Override
+  public int getInt(int x) {
+    return this.random.nextInt(x);
+  }
+
+  @Override
+  public RandomInterface split() {
+    return new SeededRandom(this.random.split());
+  }
+}
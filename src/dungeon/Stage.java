@@ -0,0 +1,37 @@
+package dungeon;
+
+/**
+ * The steps of building and playing a dungeon, in the order the driver runs them. These
+ * name the stages that are timed by the benchmark and by {@link BatchGenerator}, and the
+ * stages of the {@link GenerationStageEvent} flight recorder events.
+ *
+ * @author anush
+ *
+ */
+public enum Stage {
+
+  CREATE_DUNGEON("createDungeon"),
+  POTENTIAL_PATHS("potentialPaths"),
+  WRAPPING_POTENTIAL_PATH("wrappingPotentialPath"),
+  KRUSKAL_ALGORITHMS("kruskalAlgorithms"),
+  PARALLEL_KRUSKAL_ALGORITHMS("parallelKruskalAlgorithms"),
+  ADD_INTERCONNECTIVITY("addInterconnectivity"),
+  UPDATE_DIRECTIONS("updateDirections"),
+  SET_LOCATION_TYPE("setLocationType"),
+  SET_TREASURES("setTreasures"),
+  ADJLIST("adjlist"),
+  SET_PLAYER_START_AND_END("setPlayerStartAndEnd"),
+  MIN_FIVE_PATH("minFivePath"),
+  DISPLAY_DUNGEON("displayDungeon"),
+  PLAYER_MOVE("playerMove");
+
+  String stage;
+
+  private Stage(String stage) {
+    this.stage = stage;
+  }
+
+  public String getStage() {
+    return this.stage;
+  }
+}
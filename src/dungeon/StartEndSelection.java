@@ -0,0 +1,24 @@
+package dungeon;
+
+/**
+ * The ways in which a dungeon can pick the start and end caves of a player.
+ * The start and end cave must always be at least 5 steps apart.
+ *
+ * @author anush
+ *
+ */
+public enum StartEndSelection {
+
+  EXHAUSTIVE("exhaustive"),
+  SAMPLED("sampled");
+
+  String selection;
+
+  private StartEndSelection(String selection) {
+    this.selection = selection;
+  }
+
+  public String getSelection() {
+    return this.selection;
+  }
+}
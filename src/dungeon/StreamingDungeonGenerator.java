@@ -0,0 +1,240 @@
+package dungeon;
+
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Arrays;
+
+/**
+ * Generates a dungeon one row at a time with Eller's algorithm and writes every finished
+ * row straight to a stream. Only the current row is ever held in memory, so the size of the
+ * dungeon is limited by the disk rather than by the heap.
+ *
+ * <p>Eller's algorithm keeps a set label for every cell of the current row. Neighbouring
+ * cells of different sets are randomly joined, then every set carves at least one path
+ * down into the next row. The last row joins whatever sets are left, which gives a single
+ * unique path between every pair of nodes, just like Kruskal's algorithm.
+ *
+ * <p>Every edge is decided exactly once, so the number of left over edges is known up
+ * front. Interconnectivity opens a uniformly chosen subset of them with selection sampling
+ * as they go by. The total number of caves is not known until the end, so every cave
+ * receives treasure with the given percentage as its probability instead of an exact
+ * count.
+ *
+ * @author anush
+ *
+ */
+public class StreamingDungeonGenerator {
+
+  private final int rows;
+  private final int cols;
+  private final boolean isWrapping;
+  private final int interconnectivity;
+  private final int percentageOfTreasures;
+  private final RandomInterface r;
+
+  private final int[] label;
+  private final int[] parent;
+  private final int[] setCells;
+  private final boolean[] setCarved;
+  private final int[] remap;
+  private final boolean[] wrapOpen;
+  private byte[] current;
+  private byte[] next;
+  private long neededExtra;
+  private long remainingLeftOver;
+
+  /**
+   * Construct a generator. Nothing is generated until {@link #generate(OutputStream)} is
+   * called.
+   *
+   * @param rows Number of rows we want in a dungeon.
+   * @param cols Number of columns we want in a dungeon.
+   * @param isWrapping A boolean value that decides whether the dungeon is wrapping or non-wrapping.
+   * @param interconnectivity The number of extra connections we want in a dungeon.
+   * @param percentageOfTreasure The chance in percent that a cave holds treasure.
+   * @param r This is a parameter for randomness. It is used for implementation and testing.
+   */
+  public StreamingDungeonGenerator(int rows, int cols, boolean isWrapping,
+      int interconnectivity, int percentageOfTreasure, RandomInterface r) {
+    if (rows < 1 || cols < 1 || r == null) {
+      throw new IllegalArgumentException("Enter valid inputs");
+    }
+    long vertices = (long) rows * cols;
+    long edges = isWrapping ? 2 * vertices
+        : (long) rows * (cols - 1) + (long) (rows - 1) * cols;
+    if (interconnectivity < 0 || interconnectivity > edges - (vertices - 1)) {
+      throw new IllegalArgumentException("Not enough edges. Try a lesser number.");
+    }
+    this.rows = rows;
+    this.cols = cols;
+    this.isWrapping = isWrapping;
+    this.interconnectivity = interconnectivity;
+    this.percentageOfTreasures = percentageOfTreasure;
+    this.r = r;
+    this.label = new int[cols];
+    this.parent = new int[cols];
+    this.setCells = new int[cols];
+    this.setCarved = new boolean[cols];
+    this.remap = new int[cols];
+    this.wrapOpen = new boolean[cols];
+    this.remainingLeftOver = edges - (vertices - 1);
+  }
+
+  /**
+   * Generates the dungeon and writes it in {@link DungeonFormat}. No start or end node is
+   * chosen. The stream is flushed but not closed.
+   *
+   * @param out Where to write the dungeon to.
+   * @throws IOException If writing fails.
+   */
+  public void generate(OutputStream out) throws IOException {
+    DataOutputStream data = new DataOutputStream(out);
+    DungeonFormat.writeHeader(data, this.rows, this.cols, this.isWrapping,
+        DungeonFormat.NO_NODE, DungeonFormat.NO_NODE);
+    data.flush();
+
+    this.neededExtra = this.interconnectivity;
+    this.current = new byte[this.cols];
+    this.next = new byte[this.cols];
+
+    // The edges from the last row around to the first can never be part of the tree because
+    // the first row is written before the last one exists. They are decided up front like
+    // any other left over edge.
+    for (int j = 0; j < this.cols; j++) {
+      this.wrapOpen[j] = this.isWrapping && pickLeftOver();
+      if (this.wrapOpen[j]) {
+        this.current[j] |= CellMask.NORTH;
+      }
+      this.label[j] = j;
+    }
+
+    for (int i = 0; i < this.rows; i++) {
+      boolean last = i == this.rows - 1;
+      for (int j = 0; j < this.cols; j++) {
+        this.parent[j] = j;
+      }
+      joinRow(last);
+      if (last) {
+        for (int j = 0; j < this.cols; j++) {
+          if (this.wrapOpen[j]) {
+            this.current[j] |= CellMask.SOUTH;
+          }
+        }
+      } else {
+        carveDown();
+      }
+      finishRow();
+      out.write(this.current);
+
+      byte[] swap = this.current;
+      this.current = this.next;
+      this.next = swap;
+      Arrays.fill(this.next, (byte) 0);
+    }
+    out.flush();
+  }
+
+  private void joinRow(boolean last) {
+    int edges = this.isWrapping ? this.cols : this.cols - 1;
+    for (int j = 0; j < edges; j++) {
+      int k = (j + 1) % this.cols;
+      int x = find(this.label[j]);
+      int y = find(this.label[k]);
+      boolean carve;
+      if (x != y) {
+        carve = last || this.r.getInt(2) == 0;
+        if (carve) {
+          this.parent[y] = x;
+        } else {
+          carve = pickLeftOver();
+        }
+      } else {
+        carve = pickLeftOver();
+      }
+      if (carve) {
+        this.current[j] |= CellMask.EAST;
+        this.current[k] |= CellMask.WEST;
+      }
+    }
+  }
+
+  /**
+   * Carves at least one path down from every set and relabels the next row. Cells that are
+   * joined from above keep their set, the others start a set of their own.
+   */
+  private void carveDown() {
+    for (int j = 0; j < this.cols; j++) {
+      int root = find(this.label[j]);
+      this.setCells[root] = 0;
+      this.setCarved[root] = false;
+      this.remap[j] = -1;
+    }
+    for (int j = 0; j < this.cols; j++) {
+      this.setCells[find(this.label[j])]++;
+    }
+
+    int labels = 0;
+    for (int j = 0; j < this.cols; j++) {
+      int root = find(this.label[j]);
+      this.setCells[root]--;
+      boolean down = (this.setCells[root] == 0 && !this.setCarved[root])
+          || this.r.getInt(2) == 0;
+      if (down) {
+        this.setCarved[root] = true;
+        if (this.remap[root] == -1) {
+          this.remap[root] = labels++;
+        }
+        this.label[j] = this.remap[root];
+      } else {
+        down = pickLeftOver();
+        this.label[j] = -1;
+      }
+      if (down) {
+        this.current[j] |= CellMask.SOUTH;
+        this.next[j] |= CellMask.NORTH;
+      }
+    }
+    for (int j = 0; j < this.cols; j++) {
+      if (this.label[j] == -1) {
+        this.label[j] = labels++;
+      }
+    }
+  }
+
+  private boolean pickLeftOver() {
+    boolean pick = this.neededExtra > 0
+        && this.r.getInt((int) Math.min(this.remainingLeftOver, Integer.MAX_VALUE))
+        < this.neededExtra;
+    if (pick) {
+      this.neededExtra--;
+    }
+    this.remainingLeftOver--;
+    return pick;
+  }
+
+  private int find(int x) {
+    while (this.parent[x] != x) {
+      this.parent[x] = this.parent[this.parent[x]];
+      x = this.parent[x];
+    }
+    return x;
+  }
+
+  private void finishRow() {
+    for (int j = 0; j < this.cols; j++) {
+      int cell = this.current[j] & 0xFF;
+      if (CellMask.degree(cell) != 2) {
+        cell |= CellMask.CAVE;
+        if (this.r.getInt(100) < this.percentageOfTreasures) {
+          Treasure[] treasures = Treasure.values();
+          int number = this.r.getInt(3) + 1;
+          for (int t = 0; t < number; t++) {
+            cell |= CellMask.of(treasures[t]);
+          }
+        }
+      }
+      this.current[j] = (byte) cell;
+    }
+  }
+}
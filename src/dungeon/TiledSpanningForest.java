@@ -0,0 +1,248 @@
+package dungeon;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.util.Arrays;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Builds the unique paths of a dungeon in parallel. The grid is cut into square tiles and
+ * every tile runs Kruskal's algorithm on the edges inside it at the same time on a
+ * {@link ForkJoinPool}. That leaves one tree per tile. A final sequential pass shuffles the
+ * edges that cross tile borders, including the wrapping ones, and joins the trees with the
+ * same union-find, which gives a single tree over the whole dungeon.
+ *
+ * <p>Edges use the ids of {@link CompactDungeon}: edge 2 * id leads south from node id and
+ * edge 2 * id + 1 leads east. The chosen edges are written into a bitset over these ids.
+ *
+ * @author anush
+ *
+ */
+public class TiledSpanningForest {
+
+  /**
+   * The tile side length used when none is given.
+   */
+  public static final int DEFAULT_TILE_SIZE = 256;
+
+  private static final VarHandle WORDS = MethodHandles.arrayElementVarHandle(long[].class);
+
+  private final int rows;
+  private final int cols;
+  private final boolean wrapEdges;
+  private final int tileSize;
+  private final int tileRows;
+  private final int tileCols;
+
+  /**
+   * Construct a spanning forest builder.
+   *
+   * @param rows Number of rows in the dungeon.
+   * @param cols Number of columns in the dungeon.
+   * @param wrapEdges Whether the edges around the border of a wrapping dungeon exist.
+   * @param tileSize The side length of a tile.
+   */
+  public TiledSpanningForest(int rows, int cols, boolean wrapEdges, int tileSize) {
+    if (rows < 1 || cols < 1 || tileSize < 1 || (long) rows * cols > Integer.MAX_VALUE / 2) {
+      throw new IllegalArgumentException("Enter valid inputs");
+    }
+    this.rows = rows;
+    this.cols = cols;
+    this.wrapEdges = wrapEdges;
+    this.tileSize = tileSize;
+    this.tileRows = (rows + tileSize - 1) / tileSize;
+    this.tileCols = (cols + tileSize - 1) / tileSize;
+  }
+
+  /**
+   * Gets the number of edges that may be part of the dungeon.
+   *
+   * @return The number of valid edge ids.
+   */
+  public int getValidEdges() {
+    if (this.wrapEdges) {
+      return 2 * this.rows * this.cols;
+    }
+    return this.rows * (this.cols - 1) + (this.rows - 1) * this.cols;
+  }
+
+  /**
+   * Builds the tree. A seed is drawn from r before any work is forked and every tile draws
+   * from the {@link CounterRandom} stream of its own id under that seed, so the result only
+   * depends on r and not on how many threads run the tiles or in what order.
+   *
+   * @param pool The pool that runs the tiles.
+   * @param r This is a parameter for randomness. It is used for implementation and testing.
+   * @param openEdges A bitset of 2 * rows * cols bits that receives the chosen edges.
+   * @return The number of edges in the tree.
+   */
+  public int build(ForkJoinPool pool, RandomInterface r, long[] openEdges) {
+    int vertices = this.rows * this.cols;
+    int[] parent = new int[vertices];
+    for (int i = 0; i < vertices; i++) {
+      parent[i] = -1;
+    }
+
+    int tiles = this.tileRows * this.tileCols;
+    long seed = ((long) r.getInt(Integer.MAX_VALUE) << 31) ^ r.getInt(Integer.MAX_VALUE);
+    CounterRandom streams = new CounterRandom(seed);
+    int[] treeEdges = new int[tiles];
+    pool.invoke(new TileTask(0, tiles, parent, streams, treeEdges, openEdges));
+
+    int tree = 0;
+    for (int count : treeEdges) {
+      tree += count;
+    }
+
+    int[] border = borderEdges();
+    for (int i = 0; i < border.length && tree < vertices - 1; i++) {
+      int pick = i + r.getInt(border.length - i);
+      int edge = border[pick];
+      border[pick] = border[i];
+      border[i] = edge;
+      if (join(parent, edge >>> 1, edgeEnd(edge))) {
+        openEdges[edge >>> 6] |= 1L << edge;
+        tree++;
+      }
+    }
+    return tree;
+  }
+
+  private void buildTile(int tile, int[] parent, RandomInterface random, int[] treeEdges,
+      long[] openEdges) {
+    int r0 = (tile / this.tileCols) * this.tileSize;
+    int c0 = (tile % this.tileCols) * this.tileSize;
+    int r1 = Math.min(r0 + this.tileSize, this.rows);
+    int c1 = Math.min(c0 + this.tileSize, this.cols);
+
+    int[] edges = new int[(r1 - r0 - 1) * (c1 - c0) + (r1 - r0) * (c1 - c0 - 1)];
+    int count = 0;
+    for (int i = r0; i < r1; i++) {
+      for (int j = c0; j < c1; j++) {
+        int nid = i * this.cols + j;
+        if (i + 1 < r1) {
+          edges[count++] = 2 * nid;
+        }
+        if (j + 1 < c1) {
+          edges[count++] = 2 * nid + 1;
+        }
+      }
+    }
+
+    int needed = (r1 - r0) * (c1 - c0) - 1;
+    int tree = 0;
+    for (int i = 0; i < count && tree < needed; i++) {
+      int pick = i + random.getInt(count - i);
+      int edge = edges[pick];
+      edges[pick] = edges[i];
+      edges[i] = edge;
+      if (join(parent, edge >>> 1, edgeEnd(edge))) {
+        WORDS.getAndBitwiseOr(openEdges, edge >>> 6, 1L << edge);
+        tree++;
+      }
+    }
+    treeEdges[tile] = tree;
+  }
+
+  private int[] borderEdges() {
+    int[] edges = new int[this.tileRows * this.cols + this.rows * this.tileCols];
+    int count = 0;
+    for (int i = 0; i < this.rows; i++) {
+      boolean southBorder = (i + 1) % this.tileSize == 0 || i + 1 == this.rows;
+      boolean southValid = i + 1 < this.rows || this.wrapEdges;
+      for (int j = 0; j < this.cols; j++) {
+        int nid = i * this.cols + j;
+        if (southBorder && southValid) {
+          edges[count++] = 2 * nid;
+        }
+        boolean eastBorder = (j + 1) % this.tileSize == 0 || j + 1 == this.cols;
+        if (eastBorder && (j + 1 < this.cols || this.wrapEdges)) {
+          edges[count++] = 2 * nid + 1;
+        }
+      }
+    }
+    return Arrays.copyOf(edges, count);
+  }
+
+  private int edgeEnd(int edge) {
+    int nid = edge >>> 1;
+    int row = nid / this.cols;
+    int col = nid % this.cols;
+    if ((edge & 1) == 0) {
+      return row == this.rows - 1 ? col : nid + this.cols;
+    }
+    return col == this.cols - 1 ? nid - col : nid + 1;
+  }
+
+  /**
+   * Joins the sets of two nodes. Roots hold their negative set size.
+   *
+   * @return True if the nodes were in different sets.
+   */
+  private static boolean join(int[] parent, int a, int b) {
+    int x = find(parent, a);
+    int y = find(parent, b);
+    if (x == y) {
+      return false;
+    }
+    if (parent[x] > parent[y]) {
+      int temp = x;
+      x = y;
+      y = temp;
+    }
+    parent[x] += parent[y];
+    parent[y] = x;
+    return true;
+  }
+
+  private static int find(int[] parent, int vertex) {
+    while (parent[vertex] >= 0) {
+      int next = parent[vertex];
+      if (parent[next] >= 0) {
+        parent[vertex] = parent[next];
+      }
+      vertex = next;
+    }
+    return vertex;
+  }
+
+  /**
+   * Splits a range of tiles in half until a single tile is left, then builds it.
+   */
+  private class TileTask extends RecursiveAction {
+
+    private static final long serialVersionUID = 1L;
+
+    private final int from;
+    private final int to;
+    private final int[] parent;
+    private final CounterRandom streams;
+    private final int[] treeEdges;
+    private final long[] openEdges;
+
+    TileTask(int from, int to, int[] parent, CounterRandom streams, int[] treeEdges,
+        long[] openEdges) {
+      this.from = from;
+      this.to = to;
+      this.parent = parent;
+      this.streams = streams;
+      this.treeEdges = treeEdges;
+      this.openEdges = openEdges;
+    }
+
+    @Override
+    protected void compute() {
+      if (this.to - this.from == 1) {
+        buildTile(this.from, this.parent, this.streams.stream(this.from), this.treeEdges,
+            this.openEdges);
+        return;
+      }
+      int mid = (this.from + this.to) >>> 1;
+      invokeAll(new TileTask(this.from, mid, this.parent, this.streams, this.treeEdges,
+              this.openEdges),
+          new TileTask(mid, this.to, this.parent, this.streams, this.treeEdges,
+              this.openEdges));
+    }
+  }
+}
@@ -0,0 +1,138 @@
+package dungeon;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Keeps count of treasure without lists. The treasure of a single node or of a single
+ * pickup is packed into one int that holds an 8 bit count per {@link Treasure}, with the
+ * lowest byte for the first kind. A ledger object adds up such packed counts, for example
+ * everything placed in a dungeon or everything a player collected, and keeps running totals
+ * so none of its questions need a scan.
+ *
+ * @author anush
+ *
+ */
+public final class TreasureLedger {
+
+  private static final int BITS = 8;
+  private static final int MASK = (1 << BITS) - 1;
+  private static final Treasure[] TREASURES = Treasure.values();
+
+  private final long[] totals;
+  private int entries;
+
+  /**
+   * Construct an empty ledger.
+   */
+  public TreasureLedger() {
+    this.totals = new long[TREASURES.length];
+  }
+
+  /**
+   * Gets how many of one kind of treasure a packed count holds.
+   *
+   * @param counts The packed counts.
+   * @param t The kind of treasure.
+   * @return The number of that treasure.
+   */
+  public static int count(int counts, Treasure t) {
+    return (counts >>> (BITS * t.ordinal())) & MASK;
+  }
+
+  /**
+   * Adds one treasure to a packed count.
+   *
+   * @param counts The packed counts.
+   * @param t The kind of treasure to add.
+   * @return The new packed counts.
+   */
+  public static int add(int counts, Treasure t) {
+    if (count(counts, t) == MASK) {
+      throw new IllegalStateException("Too many " + t + " in one place");
+    }
+    return counts + (1 << (BITS * t.ordinal()));
+  }
+
+  /**
+   * Gets the packed count of the treasure bits of a packed node.
+   *
+   * @param cell A packed node as described in {@link CellMask}.
+   * @return The packed counts.
+   */
+  public static int fromCell(int cell) {
+    int counts = 0;
+    for (Treasure t : TREASURES) {
+      if ((cell & CellMask.of(t)) != 0) {
+        counts = add(counts, t);
+      }
+    }
+    return counts;
+  }
+
+  /**
+   * Lists the treasure of a packed count in the order of {@link Treasure}.
+   *
+   * @param counts The packed counts.
+   * @return A new list with one entry per treasure.
+   */
+  public static List<Treasure> toList(int counts) {
+    List<Treasure> treasures = new ArrayList<>();
+    for (Treasure t : TREASURES) {
+      for (int i = count(counts, t); i > 0; i--) {
+        treasures.add(t);
+      }
+    }
+    return treasures;
+  }
+
+  /**
+   * Packs a list of treasure.
+   *
+   * @param treasures The treasure.
+   * @return The packed counts.
+   */
+  public static int fromList(List<Treasure> treasures) {
+    int counts = 0;
+    for (Treasure t : treasures) {
+      counts = add(counts, t);
+    }
+    return counts;
+  }
+
+  /**
+   * Records one entry, for example the treasure placed in one cave or one pickup. Empty
+   * entries are not counted.
+   *
+   * @param counts The packed counts of the entry.
+   */
+  public void record(int counts) {
+    if (counts == 0) {
+      return;
+    }
+    this.entries++;
+    for (Treasure t : TREASURES) {
+      this.totals[t.ordinal()] += count(counts, t);
+    }
+  }
+
+  /**
+   * Gets the total of one kind of treasure over all entries.
+   *
+   * @param t The kind of treasure.
+   * @return The total.
+   */
+  public long getTotal(Treasure t) {
+    return this.totals[t.ordinal()];
+  }
+
+  /**
+   * Gets the number of entries that held any treasure, for example the number of caves
+   * that were given treasure.
+   *
+   * @return The number of entries.
+   */
+  public int getEntries() {
+    return this.entries;
+  }
+}
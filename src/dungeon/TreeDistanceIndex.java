@@ -0,0 +1,276 @@
+package dungeon;
+
+import java.util.Arrays;
+
+/**
+ * Answers the distance between any two nodes in constant time for dungeons that are a
+ * spanning tree or close to one. Without interconnectivity the paths of a dungeon are
+ * exactly the tree Kruskal's algorithm chose, and the distance between two nodes is the depth
+ * of each minus twice the depth of their lowest common ancestor.
+ *
+ * <p>The tree is rooted at node 0 and walked once without recursion to record its Euler tour:
+ * every node each time the walk passes it, next to its depth so comparisons stay within one
+ * array. The lowest common ancestor of two nodes is the shallowest node of the tour between
+ * their first visits. The tour is cut into blocks of {@value #BLOCK} entries and a sparse
+ * table keeps the shallowest entry of every run of 2^k blocks, so a query reads two partial
+ * blocks and two table entries.
+ *
+ * <p>Paths added for interconnectivity are not part of the tree. A shortest path either stays
+ * in the tree or passes an end of one of those paths, so a breadth first search is run from
+ * every such end and a query also tries going through each of them. That keeps queries exact
+ * but costs one int per node for every end, so it is only worth it for a few extra paths.
+ *
+ * <p>The index never changes after it is built and may be read by any number of threads.
+ *
+ * @author anush
+ *
+ */
+public class TreeDistanceIndex {
+
+  /**
+   * The most paths outside the spanning tree {@link #isNearTree(IGraph)} accepts.
+   */
+  public static final int MAX_EXTRA_PATHS = 16;
+
+  private static final int BLOCK = 16;
+
+  private final int[] depth;
+  private final int[] first;
+  private final int[] tour;
+  private final int[] tourDepth;
+  private final int[][] table;
+  private final int[] extraEnds;
+  private final int[][] extraDistances;
+
+  /**
+   * Builds the index.
+   *
+   * @param graph The connections of the dungeon. It must be connected and undirected.
+   * @param maxExtraPaths The most paths outside the spanning tree to accept.
+   */
+  public TreeDistanceIndex(IGraph graph, int maxExtraPaths) {
+    if (graph == null || graph.getVertices() < 1 || maxExtraPaths < 0) {
+      throw new IllegalArgumentException("Enter valid inputs");
+    }
+    int vertices = graph.getVertices();
+
+    // Breadth first search from node 0 for the tree and the depth of every node.
+    int[] parent = new int[vertices];
+    int[] order = new int[vertices];
+    this.depth = new int[vertices];
+    Arrays.fill(parent, -1);
+    parent[0] = 0;
+    int tail = 1;
+    for (int head = 0; head < tail; head++) {
+      int u = order[head];
+      int degree = graph.getDegree(u);
+      for (int i = 0; i < degree; i++) {
+        int v = graph.getNeighbor(u, i);
+        if (parent[v] == -1) {
+          parent[v] = u;
+          this.depth[v] = this.depth[u] + 1;
+          order[tail++] = v;
+        }
+      }
+    }
+    if (tail != vertices) {
+      throw new IllegalArgumentException("The dungeon is not connected");
+    }
+
+    // Paths that are not tree edges. Repeated paths between the same two nodes never make
+    // a path shorter, so they are skipped.
+    boolean[] isExtraEnd = new boolean[vertices];
+    int extraPaths = 0;
+    for (int u = 0; u < vertices; u++) {
+      int degree = graph.getDegree(u);
+      for (int i = 0; i < degree; i++) {
+        int v = graph.getNeighbor(u, i);
+        if (u < v && parent[v] != u && parent[u] != v) {
+          if (++extraPaths > maxExtraPaths) {
+            throw new IllegalArgumentException("The dungeon has more than " + maxExtraPaths
+                + " paths outside its spanning tree");
+          }
+          isExtraEnd[u] = true;
+          isExtraEnd[v] = true;
+        }
+      }
+    }
+
+    // The children of every node, grouped by parent.
+    int[] childStart = new int[vertices + 1];
+    for (int v = 1; v < vertices; v++) {
+      childStart[parent[order[v]] + 1]++;
+    }
+    for (int v = 0; v < vertices; v++) {
+      childStart[v + 1] += childStart[v];
+    }
+    int[] fill = Arrays.copyOf(childStart, vertices);
+    int[] children = new int[Math.max(0, vertices - 1)];
+    for (int v = 1; v < vertices; v++) {
+      int child = order[v];
+      children[fill[parent[child]]++] = child;
+    }
+
+    // Euler tour without recursion. The stack holds the nodes on the way down and fill
+    // holds, for each of them, the next child to visit.
+    this.first = new int[vertices];
+    this.tour = new int[2 * vertices - 1];
+    int[] stack = order;
+    System.arraycopy(childStart, 0, fill, 0, vertices);
+    int top = 0;
+    int length = 0;
+    stack[0] = 0;
+    this.first[0] = 0;
+    this.tour[length++] = 0;
+    while (top >= 0) {
+      int u = stack[top];
+      if (fill[u] < childStart[u + 1]) {
+        int child = children[fill[u]++];
+        stack[++top] = child;
+        this.first[child] = length;
+        this.tour[length++] = child;
+      } else {
+        top--;
+        if (top >= 0) {
+          this.tour[length++] = stack[top];
+        }
+      }
+    }
+
+    this.tourDepth = new int[this.tour.length];
+    for (int i = 0; i < this.tour.length; i++) {
+      this.tourDepth[i] = this.depth[this.tour[i]];
+    }
+
+    // Sparse table over the shallowest entry of every block.
+    int blocks = (this.tour.length + BLOCK - 1) / BLOCK;
+    int levels = 1;
+    while ((1 << levels) <= blocks) {
+      levels++;
+    }
+    this.table = new int[levels][];
+    this.table[0] = new int[blocks];
+    for (int b = 0; b < blocks; b++) {
+      this.table[0][b] = scan(b * BLOCK, Math.min(this.tour.length, (b + 1) * BLOCK) - 1);
+    }
+    for (int k = 1; k < levels; k++) {
+      int[] previous = this.table[k - 1];
+      int[] level = new int[blocks - (1 << k) + 1];
+      for (int b = 0; b < level.length; b++) {
+        level[b] = shallower(previous[b], previous[b + (1 << (k - 1))]);
+      }
+      this.table[k] = level;
+    }
+
+    // Exact distances from the ends of the paths outside the tree.
+    int ends = 0;
+    for (boolean end : isExtraEnd) {
+      if (end) {
+        ends++;
+      }
+    }
+    this.extraEnds = new int[ends];
+    this.extraDistances = new int[ends][];
+    DistanceEngine engine = ends == 0 ? null : new DistanceEngine(graph);
+    for (int v = 0, e = 0; v < vertices; v++) {
+      if (isExtraEnd[v]) {
+        this.extraEnds[e] = v;
+        this.extraDistances[e++] = engine.distancesFrom(v).clone();
+      }
+    }
+  }
+
+  /**
+   * Checks whether a graph is close enough to a tree for an index with at most
+   * {@link #MAX_EXTRA_PATHS} paths outside the spanning tree. This counts paths, so it is a
+   * cheap check that can be made before building.
+   *
+   * @param graph The connections of the dungeon.
+   * @return True if the graph has few enough paths.
+   */
+  public static boolean isNearTree(IGraph graph) {
+    long ends = 0;
+    for (int v = 0; v < graph.getVertices(); v++) {
+      ends += graph.getDegree(v);
+    }
+    return ends / 2 - (graph.getVertices() - 1) <= MAX_EXTRA_PATHS;
+  }
+
+  /**
+   * Gets the number of nodes a breadth first search was run from to correct for paths
+   * outside the tree.
+   *
+   * @return The number of path ends.
+   */
+  public int getExtraEnds() {
+    return this.extraEnds.length;
+  }
+
+  /**
+   * Gets the length of the path between two nodes along the spanning tree.
+   *
+   * @param u The first node id.
+   * @param v The second node id.
+   * @return The number of steps in the tree.
+   */
+  public int treeDistance(int u, int v) {
+    return this.depth[u] + this.depth[v] - 2 * this.depth[lowestCommonAncestor(u, v)];
+  }
+
+  /**
+   * Gets the length of a shortest path between two nodes.
+   *
+   * @param u The first node id.
+   * @param v The second node id.
+   * @return The number of steps.
+   */
+  public int distance(int u, int v) {
+    int best = treeDistance(u, v);
+    for (int[] distance : this.extraDistances) {
+      int through = distance[u] + distance[v];
+      if (through < best) {
+        best = through;
+      }
+    }
+    return best;
+  }
+
+  /**
+   * Gets the deepest node that is an ancestor of both nodes in the tree rooted at node 0.
+   *
+   * @param u The first node id.
+   * @param v The second node id.
+   * @return The node id of the lowest common ancestor.
+   */
+  public int lowestCommonAncestor(int u, int v) {
+    int from = Math.min(this.first[u], this.first[v]);
+    int to = Math.max(this.first[u], this.first[v]);
+    int fromBlock = from / BLOCK;
+    int toBlock = to / BLOCK;
+    if (toBlock - fromBlock < 2) {
+      return this.tour[scan(from, to)];
+    }
+    int best = shallower(scan(from, (fromBlock + 1) * BLOCK - 1), scan(toBlock * BLOCK, to));
+    int k = 31 - Integer.numberOfLeadingZeros(toBlock - fromBlock - 1);
+    best = shallower(best, this.table[k][fromBlock + 1]);
+    best = shallower(best, this.table[k][toBlock - (1 << k)]);
+    return this.tour[best];
+  }
+
+  /**
+   * Finds the shallowest tour entry between two positions, both included.
+   */
+  private int scan(int from, int to) {
+    int best = from;
+    for (int i = from + 1; i <= to; i++) {
+      if (this.tourDepth[i] < this.tourDepth[best]) {
+        best = i;
+      }
+    }
+    return best;
+  }
+
+  private int shallower(int a, int b) {
+    return this.tourDepth[b] < this.tourDepth[a] ? b : a;
+  }
+}
@@ -0,0 +1,242 @@
+package dungeon;
+
+import java.io.IOException;
+import java.nio.CharBuffer;
+import java.util.Arrays;
+
+/**
+ * Draws a window of a few rows and columns of a dungeon around the player, in the same style
+ * as {@link IDungeon#displayDungeon()}, with the cave of the player marked as {@code [12]}.
+ * The window stays put while the player moves inside it and is centered on the player again
+ * when the player reaches its border. In a wrapping dungeon the window wraps around the edges,
+ * otherwise the cells outside the dungeon are left blank.
+ *
+ * <p>The three lines of a cell never change once its paths and type are set, so each cell is
+ * rendered once, the first time it is seen, and copied from then on. After the first frame,
+ * {@link #update(Appendable)} writes only the lines that differ from the previous frame. The
+ * work for a frame depends on the size of the window only, never on the size of the dungeon,
+ * and once the cells in view have been rendered a frame allocates nothing: the cells are kept
+ * in an array indexed by node id and every line of both frame buffers is written through a
+ * {@link CharBuffer} made once for it.
+ *
+ * <p>A viewport belongs to one game and must only be used by one thread at a time.
+ *
+ * @author anush
+ *
+ */
+public class Viewport {
+
+  private static final int LINES_PER_CELL = 3;
+
+  private final AbstractDungeon dungeon;
+  private final int viewRows;
+  private final int viewCols;
+  private final int cellWidth;
+  private final char[] blank;
+  private final char[][] fragments;
+  private char[][] shown;
+  private char[][] next;
+  private CharBuffer[] shownText;
+  private CharBuffer[] nextText;
+  private int originRow;
+  private int originCol;
+  private boolean placed;
+
+  /**
+   * Construct a viewport of a dungeon that is built.
+   *
+   * @param dungeon The dungeon to draw.
+   * @param viewRows The number of rows of cells in the window.
+   * @param viewCols The number of columns of cells in the window.
+   */
+  Viewport(AbstractDungeon dungeon, int viewRows, int viewCols) {
+    if (dungeon == null || viewRows < 1 || viewCols < 1) {
+      throw new IllegalArgumentException("Enter valid inputs");
+    }
+    this.dungeon = dungeon;
+    this.viewRows = viewRows;
+    this.viewCols = viewCols;
+    int digits = Integer.toString(Math.max(0, dungeon.getRows() * dungeon.getCols() - 1))
+        .length();
+    // West path, cave number, east path and the gap to the next cell.
+    this.cellWidth = 2 + Math.max(2, digits) + 2 + 1;
+    this.blank = new char[LINES_PER_CELL * this.cellWidth];
+    Arrays.fill(this.blank, ' ');
+    this.fragments = new char[dungeon.getRows() * dungeon.getCols()][];
+    this.shown = new char[LINES_PER_CELL * viewRows][viewCols * this.cellWidth];
+    this.next = new char[LINES_PER_CELL * viewRows][viewCols * this.cellWidth];
+    this.shownText = wrap(this.shown);
+    this.nextText = wrap(this.next);
+  }
+
+  private static CharBuffer[] wrap(char[][] lines) {
+    CharBuffer[] text = new CharBuffer[lines.length];
+    for (int i = 0; i < lines.length; i++) {
+      text[i] = CharBuffer.wrap(lines[i]);
+    }
+    return text;
+  }
+
+  /**
+   * Gets the number of lines of a frame.
+   *
+   * @return The number of lines.
+   */
+  public int getLines() {
+    return this.shown.length;
+  }
+
+  /**
+   * Gets the number of characters in every line of a frame.
+   *
+   * @return The width of a line.
+   */
+  public int getWidth() {
+    return this.viewCols * this.cellWidth;
+  }
+
+  /**
+   * Writes the whole window as it is now, one line after the other.
+   *
+   * @param out Where the frame is written.
+   * @throws IOException If the frame cannot be written.
+   */
+  public void draw(Appendable out) throws IOException {
+    render();
+    for (CharBuffer line : this.shownText) {
+      out.append(line).append('\n');
+    }
+  }
+
+  /**
+   * Writes the lines of the window that changed since the last frame. Each line is written as
+   * its index, counted from 0, a space and the new text. The first frame has every line.
+   *
+   * @param out Where the changed lines are written.
+   * @return The number of lines written.
+   * @throws IOException If the lines cannot be written.
+   */
+  public int update(Appendable out) throws IOException {
+    boolean first = !this.placed;
+    char[][] previous = this.shown;
+    render();
+    int changed = 0;
+    for (int i = 0; i < this.shown.length; i++) {
+      if (first || !Arrays.equals(this.shown[i], previous[i])) {
+        writeIndex(out, i);
+        out.append(' ').append(this.shownText[i]).append('\n');
+        changed++;
+      }
+    }
+    return changed;
+  }
+
+  /**
+   * Renders the current frame into the spare buffer and makes it the shown one. The previous
+   * frame stays in the spare buffer until the next call, so it can be compared.
+   */
+  private void render() {
+    IPlayer player = this.dungeon.getPlayer();
+    if (player == null) {
+      throw new IllegalStateException("The player has not entered the dungeon");
+    }
+    int nid = player.getCurrent().getNid();
+    int rows = this.dungeon.getRows();
+    int cols = this.dungeon.getCols();
+    int playerRow = nid / cols;
+    int playerCol = nid % cols;
+    if (!this.placed || !inside(playerRow - this.originRow, rows, this.viewRows)
+        || !inside(playerCol - this.originCol, cols, this.viewCols)) {
+      this.originRow = playerRow - this.viewRows / 2;
+      this.originCol = playerCol - this.viewCols / 2;
+      this.placed = true;
+    }
+
+    boolean wrapping = this.dungeon.getIsWrapping();
+    for (int vr = 0; vr < this.viewRows; vr++) {
+      int row = this.originRow + vr;
+      if (wrapping) {
+        row = Math.floorMod(row, rows);
+      }
+      for (int vc = 0; vc < this.viewCols; vc++) {
+        int col = this.originCol + vc;
+        if (wrapping) {
+          col = Math.floorMod(col, cols);
+        }
+        char[] fragment = row < 0 || row >= rows || col < 0 || col >= cols ? this.blank
+            : fragment(row * cols + col);
+        for (int k = 0; k < LINES_PER_CELL; k++) {
+          System.arraycopy(fragment, k * this.cellWidth, this.next[LINES_PER_CELL * vr + k],
+              vc * this.cellWidth, this.cellWidth);
+        }
+      }
+    }
+
+    int vr = playerRow - this.originRow;
+    int vc = playerCol - this.originCol;
+    if (wrapping) {
+      vr = Math.floorMod(vr, rows);
+      vc = Math.floorMod(vc, cols);
+    }
+    char[] middle = this.next[LINES_PER_CELL * vr + 1];
+    middle[vc * this.cellWidth + 1] = '[';
+    middle[vc * this.cellWidth + this.cellWidth - 3] = ']';
+
+    char[][] swap = this.shown;
+    this.shown = this.next;
+    this.next = swap;
+    CharBuffer[] swapText = this.shownText;
+    this.shownText = this.nextText;
+    this.nextText = swapText;
+  }
+
+  /**
+   * Checks whether a position relative to the window is inside it and away from its border,
+   * unless the window is too small to have a border.
+   */
+  private boolean inside(int offset, int size, int view) {
+    if (this.dungeon.getIsWrapping()) {
+      offset = Math.floorMod(offset, size);
+    }
+    int margin = view >= 3 ? 1 : 0;
+    return offset >= margin && offset < view - margin;
+  }
+
+  private char[] fragment(int nid) {
+    char[] fragment = this.fragments[nid];
+    if (fragment != null) {
+      return fragment;
+    }
+    INode node = this.dungeon.getNode(nid);
+    int w = this.cellWidth;
+    fragment = new char[LINES_PER_CELL * w];
+    Arrays.fill(fragment, ' ');
+    if (node.getNorth()) {
+      fragment[2] = '|';
+    }
+    if (node.getWest()) {
+      fragment[w] = '-';
+    }
+    if (node.getType() == LocationType.CAVE) {
+      String id = Integer.toString(nid);
+      id.getChars(0, id.length(), fragment, w + w - 3 - id.length());
+    } else {
+      fragment[w + 2] = 'T';
+    }
+    if (node.getEast()) {
+      fragment[w + w - 2] = '-';
+    }
+    if (node.getSouth()) {
+      fragment[2 * w + 2] = '|';
+    }
+    this.fragments[nid] = fragment;
+    return fragment;
+  }
+
+  private static void writeIndex(Appendable out, int index) throws IOException {
+    if (index >= 10) {
+      writeIndex(out, index / 10);
+    }
+    out.append((char) ('0' + index % 10));
+  }
+}
@@ -0,0 +1,189 @@
+package server;
+
+import dungeon.BatchGenerator;
+import dungeon.DungeonCache;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * A game server without a console that hosts many games in one JVM. Clients connect over a
+ * local socket and every connection becomes a {@link Session} with its own dungeon and
+ * player. Dungeons come from a shared {@link DungeonCache}, so games with the same
+ * parameters share one layout.
+ *
+ * <p>Every session is served by its own thread. Virtual threads are used when the Java
+ * version has them, so idle sessions cost almost nothing; otherwise every session gets a
+ * platform thread. Sessions that stay silent longer than the idle timeout are closed.
+ *
+ * @author anush
+ *
+ */
+public class GameServer implements Closeable {
+
+  private static final int BACKLOG = 4096;
+  private static final long SHUTDOWN_MILLIS = 5000;
+  private static final long MIN_BACKOFF_MILLIS = 10;
+  private static final long MAX_BACKOFF_MILLIS = 1000;
+
+  private final ServerSocket serverSocket;
+  private final DungeonCache cache;
+  private final int idleMillis;
+  private final ExecutorService executor;
+  private final Map<Long, Session> sessions;
+  private final AtomicLong nextId;
+  private final AtomicLong served;
+  private final Thread acceptor;
+  private volatile boolean running;
+
+  /**
+   * Starts a server on the loopback address.
+   *
+   * @param port The port to listen on, or 0 for any free port.
+   * @param idleMillis How long a client may stay silent before its session is closed.
+   * @param cache Where the dungeons of the games come from.
+   * @throws IOException If the port cannot be opened.
+   */
+  public GameServer(int port, int idleMillis, DungeonCache cache) throws IOException {
+    if (idleMillis < 1 || cache == null) {
+      throw new IllegalArgumentException("Enter valid inputs");
+    }
+    this.serverSocket = new ServerSocket(port, BACKLOG, InetAddress.getLoopbackAddress());
+    this.cache = cache;
+    this.idleMillis = idleMillis;
+    this.executor = BatchGenerator.virtualExecutor(Executors::newCachedThreadPool);
+    this.sessions = new ConcurrentHashMap<>();
+    this.nextId = new AtomicLong();
+    this.served = new AtomicLong();
+    this.running = true;
+    this.acceptor = new Thread(this::acceptConnections, "game-server-accept");
+    this.acceptor.start();
+  }
+
+  public int getPort() {
+    return this.serverSocket.getLocalPort();
+  }
+
+  /**
+   * Gets the number of sessions that are currently connected.
+   *
+   * @return The number of open sessions.
+   */
+  public int getSessionCount() {
+    return this.sessions.size();
+  }
+
+  /**
+   * Gets the number of sessions served since the server started, including open ones.
+   *
+   * @return The number of sessions.
+   */
+  public long getServedCount() {
+    return this.served.get();
+  }
+
+  /**
+   * Accepts clients until the server is closed. A failure that lasts, like running out of
+   * file descriptors, fails every accept right away, so after a failure the loop reports it
+   * and waits before it tries again, twice as long after every failure in a row.
+   */
+  private void acceptConnections() {
+    long backoff = 0;
+    while (this.running) {
+      Socket socket;
+      try {
+        socket = this.serverSocket.accept();
+        backoff = 0;
+      } catch (IOException e) {
+        if (!this.running) {
+          return;
+        }
+        backoff = Math.min(MAX_BACKOFF_MILLIS, Math.max(MIN_BACKOFF_MILLIS, 2 * backoff));
+        System.err.println("Could not accept a client, trying again in " + backoff + " ms: "
+            + e.getMessage());
+        try {
+          Thread.sleep(backoff);
+        } catch (InterruptedException interrupted) {
+          return;
+        }
+        continue;
+      }
+      Session session = new Session(this.nextId.incrementAndGet(), socket, this.cache);
+      this.sessions.put(session.getId(), session);
+      this.served.incrementAndGet();
+      try {
+        this.executor.execute(() -> serve(session));
+      } catch (RuntimeException e) {
+        this.sessions.remove(session.getId());
+        session.close();
+      }
+    }
+  }
+
+  private void serve(Session session) {
+    try {
+      session.serve(this.idleMillis);
+    } catch (IOException e) {
+      // The client went away.
+    } finally {
+      this.sessions.remove(session.getId());
+      session.close();
+    }
+  }
+
+  /**
+   * Stops accepting connections and closes every session. Sessions that are running a
+   * command finish it first. Waits a few seconds for them before returning.
+   */
+  @Override
+  public void close() throws IOException {
+    this.running = false;
+    this.serverSocket.close();
+    for (Session session : this.sessions.values()) {
+      session.shutdown();
+    }
+    this.executor.shutdown();
+    try {
+      this.acceptor.join(SHUTDOWN_MILLIS);
+      if (!this.executor.awaitTermination(SHUTDOWN_MILLIS, TimeUnit.MILLISECONDS)) {
+        this.executor.shutdownNow();
+      }
+    } catch (InterruptedException e) {
+      this.executor.shutdownNow();
+      Thread.currentThread().interrupt();
+    }
+  }
+
+  /**
+   * Runs a server until the JVM is stopped.
+   *
+   * @param args The port, the idle timeout in seconds and the dungeon cache size in
+   *        megabytes. All are optional.
+   * @throws IOException If the port cannot be opened.
+   */
+  public static void main(String[] args) throws IOException {
+    int port = args.length > 0 ? Integer.parseInt(args[0]) : 4000;
+    int idleSeconds = args.length > 1 ? Integer.parseInt(args[1]) : 300;
+    long cacheMegabytes = args.length > 2 ? Long.parseLong(args[2]) : 256;
+
+    GameServer server = new GameServer(port, idleSeconds * 1000,
+        new DungeonCache(cacheMegabytes << 20));
+    Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+      try {
+        server.close();
+      } catch (IOException e) {
+        // Shutting down anyway.
+      }
+    }));
+    System.out.println("Listening on port " + server.getPort());
+  }
+}
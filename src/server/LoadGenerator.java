@@ -0,0 +1,222 @@
+package server;
+
+import dungeon.BatchGenerator;
+import dungeon.DungeonCache;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.net.InetAddress;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Opens many sessions against a local {@link GameServer} at once and keeps them busy like
+ * slow players would: every client starts a game, then sends a move, waits for the think
+ * time and repeats. All clients connect before the first move is sent, so the server holds
+ * every session at the same time. Prints the throughput and the response time percentiles.
+ *
+ * <p>Options are given as key=value pairs, for example
+ * {@code port=4000 sessions=10000 moves=20 thinkMillis=1000 layouts=100}.
+ *
+ * @author anush
+ *
+ */
+public class LoadGenerator {
+
+  private final int port;
+  private final int sessions;
+  private final int moves;
+  private final int thinkMillis;
+  private final int layouts;
+  private final long[][] latencies;
+  private final AtomicInteger failures;
+
+  /**
+   * Construct a load generator.
+   *
+   * @param port The port of the server.
+   * @param sessions The number of sessions to open.
+   * @param moves The number of moves every session sends.
+   * @param thinkMillis The pause between two moves of a session.
+   * @param layouts The number of different dungeons the sessions play.
+   */
+  public LoadGenerator(int port, int sessions, int moves, int thinkMillis, int layouts) {
+    if (sessions < 1 || moves < 0 || thinkMillis < 0 || layouts < 1) {
+      throw new IllegalArgumentException("Enter valid inputs");
+    }
+    this.port = port;
+    this.sessions = sessions;
+    this.moves = moves;
+    this.thinkMillis = thinkMillis;
+    this.layouts = layouts;
+    this.latencies = new long[sessions][];
+    this.failures = new AtomicInteger();
+  }
+
+  /**
+   * Runs the load and waits for every session to finish.
+   *
+   * @return A summary of the run.
+   * @throws InterruptedException If the run is interrupted.
+   */
+  public String run() throws InterruptedException {
+    ExecutorService executor = BatchGenerator.virtualExecutor(Executors::newCachedThreadPool);
+    CountDownLatch connected = new CountDownLatch(this.sessions);
+    CountDownLatch done = new CountDownLatch(this.sessions);
+    long start = System.nanoTime();
+    for (int i = 0; i < this.sessions; i++) {
+      int client = i;
+      executor.execute(() -> {
+        try {
+          play(client, connected);
+        } catch (IOException | RuntimeException e) {
+          this.failures.incrementAndGet();
+        } finally {
+          if (this.latencies[client] == null) {
+            connected.countDown();
+          }
+          done.countDown();
+        }
+      });
+    }
+    connected.await();
+    long allConnected = System.nanoTime();
+    done.await();
+    long elapsed = System.nanoTime() - start;
+    executor.shutdown();
+    executor.awaitTermination(1, TimeUnit.MINUTES);
+
+    long[] all = Arrays.stream(this.latencies).filter(l -> l != null)
+        .flatMapToLong(Arrays::stream).sorted().toArray();
+    StringBuilder sb = new StringBuilder();
+    sb.append(String.format("%d sessions connected in %.3f s, %d failed\n", this.sessions,
+        (allConnected - start) / 1e9, this.failures.get()));
+    sb.append(String.format("%d commands in %.3f s, %.1f commands per second\n", all.length,
+        elapsed / 1e9, all.length * 1e9 / elapsed));
+    if (all.length > 0) {
+      sb.append(String.format("response time p50 %.3f ms, p99 %.3f ms, max %.3f ms\n",
+          percentile(all, 0.50) / 1e6, percentile(all, 0.99) / 1e6,
+          all[all.length - 1] / 1e6));
+    }
+    return sb.toString();
+  }
+
+  private void play(int client, CountDownLatch connected) throws IOException {
+    try (Socket socket = new Socket(InetAddress.getLoopbackAddress(), this.port)) {
+      BufferedReader in = new BufferedReader(
+          new InputStreamReader(socket.getInputStream(), StandardCharsets.UTF_8));
+      Writer out = new OutputStreamWriter(socket.getOutputStream(), StandardCharsets.UTF_8);
+      long[] times = new long[this.moves + 1];
+      readReply(in);
+      times[0] = command(in, out, "NEW 10 10 true 5 30 " + (client % this.layouts));
+      this.latencies[client] = times;
+      connected.countDown();
+      try {
+        connected.await();
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        return;
+      }
+      for (int i = 1; i <= this.moves; i++) {
+        if (this.thinkMillis > 0) {
+          Thread.sleep(this.thinkMillis);
+        }
+        times[i] = command(in, out, "MOVE " + (1 + (client + i) % 2));
+      }
+      command(in, out, "QUIT");
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+  }
+
+  private static long command(BufferedReader in, Writer out, String line) throws IOException {
+    long start = System.nanoTime();
+    out.write(line);
+    out.write('\n');
+    out.flush();
+    readReply(in);
+    return System.nanoTime() - start;
+  }
+
+  private static void readReply(BufferedReader in) throws IOException {
+    String line;
+    while ((line = in.readLine()) != null) {
+      if (Session.END.equals(line)) {
+        return;
+      }
+    }
+    throw new IOException("The server closed the connection");
+  }
+
+  private static long percentile(long[] sorted, double p) {
+    return sorted[(int) Math.min(sorted.length - 1, Math.floor(p * sorted.length))];
+  }
+
+  /**
+   * Runs a load against a server. If no port is given a server is started in this JVM.
+   *
+   * @param args Options as key=value pairs.
+   * @throws Exception If the server cannot be started or the run is interrupted.
+   */
+  public static void main(String[] args) throws Exception {
+    int port = 0;
+    int sessions = 1000;
+    int moves = 10;
+    int thinkMillis = 100;
+    int layouts = 100;
+    int idleSeconds = 60;
+    for (String arg : args) {
+      String[] pair = arg.split("=", 2);
+      if (pair.length != 2) {
+        throw new IllegalArgumentException("Options must look like key=value: " + arg);
+      }
+      switch (pair[0]) {
+        case "port":
+          port = Integer.parseInt(pair[1]);
+          break;
+        case "sessions":
+          sessions = Integer.parseInt(pair[1]);
+          break;
+        case "moves":
+          moves = Integer.parseInt(pair[1]);
+          break;
+        case "thinkMillis":
+          thinkMillis = Integer.parseInt(pair[1]);
+          break;
+        case "layouts":
+          layouts = Integer.parseInt(pair[1]);
+          break;
+        case "idleSeconds":
+          idleSeconds = Integer.parseInt(pair[1]);
+          break;
+        default:
+          throw new IllegalArgumentException("Unknown option: " + pair[0]);
+      }
+    }
+
+    GameServer server = null;
+    if (port == 0) {
+      server = new GameServer(0, idleSeconds * 1000, new DungeonCache(64 << 20));
+      port = server.getPort();
+    }
+    try {
+      System.out.print(new LoadGenerator(port, sessions, moves, thinkMillis, layouts).run());
+      if (server != null) {
+        System.out.println("sessions served: " + server.getServedCount());
+      }
+    } finally {
+      if (server != null) {
+        server.close();
+      }
+    }
+  }
+}
@@ -0,0 +1,262 @@
+package server;
+
+import dungeon.Directions;
+import dungeon.DistanceEngine;
+import dungeon.DungeonCache;
+import dungeon.DungeonKey;
+import dungeon.IDungeon;
+import dungeon.Viewport;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.net.Socket;
+import java.net.SocketTimeoutException;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * One connection to the game server with its own dungeon and player. A session reads one
+ * command per line and answers with any number of lines followed by a line holding only
+ * {@code END}.
+ *
+ * <pre>
+ * NEW rows cols wrapping interconnectivity treasure [seed]   start a game
+ * MOVE n        move along the n-th available direction
+ * LOOK          details of the current location
+ * PLAYER        location and treasures of the player
+ * DIRECTIONS    the directions the player can choose from
+ * MAP           the whole dungeon
+ * VIEW [r c]    the lines of an r x c window around the player that changed since the last
+ *               VIEW, after a count line; a new size redraws every line
+ * HINT          a direction towards the end cave and how far it is
+ * QUIT          close the session
+ * </pre>
+ *
+ * @author anush
+ *
+ */
+public class Session implements Closeable {
+
+  static final String END = "END";
+  private static final int DEFAULT_VIEW_ROWS = 5;
+  private static final int DEFAULT_VIEW_COLS = 7;
+  private static final int MAX_VIEW = 25;
+
+  private final long id;
+  private final Socket socket;
+  private final DungeonCache cache;
+  private IDungeon dungeon;
+  private Viewport viewport;
+  private boolean busy;
+  private boolean closing;
+
+  /**
+   * Construct a session.
+   *
+   * @param id The id of the session in the registry.
+   * @param socket The connection of the client.
+   * @param cache Where the dungeons of the games come from.
+   */
+  Session(long id, Socket socket, DungeonCache cache) {
+    this.id = id;
+    this.socket = socket;
+    this.cache = cache;
+  }
+
+  public long getId() {
+    return this.id;
+  }
+
+  /**
+   * Serves the client until it quits, goes idle for too long or the server shuts down.
+   *
+   * @param idleMillis How long a client may stay silent before the session is closed.
+   * @throws IOException If the connection fails.
+   */
+  void serve(int idleMillis) throws IOException {
+    this.socket.setSoTimeout(idleMillis);
+    BufferedReader in = new BufferedReader(
+        new InputStreamReader(this.socket.getInputStream(), StandardCharsets.UTF_8));
+    Writer out = new BufferedWriter(
+        new OutputStreamWriter(this.socket.getOutputStream(), StandardCharsets.UTF_8));
+    reply(out, "WELCOME " + this.id);
+
+    while (true) {
+      String line;
+      try {
+        line = in.readLine();
+      } catch (SocketTimeoutException e) {
+        reply(out, "TIMEOUT");
+        return;
+      }
+      if (line == null || !begin()) {
+        return;
+      }
+      boolean quit;
+      try {
+        quit = "QUIT".equalsIgnoreCase(line.trim());
+        reply(out, quit ? "BYE" : handle(line.trim()));
+      } finally {
+        if (!end()) {
+          reply(out, "SHUTDOWN");
+          quit = true;
+        }
+      }
+      if (quit) {
+        return;
+      }
+    }
+  }
+
+  private String handle(String line) {
+    String[] words = line.split("\\s+");
+    try {
+      switch (words[0].toUpperCase()) {
+        case "NEW":
+          return newGame(words);
+        case "MOVE":
+          if (words.length != 2) {
+            return "ERROR Usage: MOVE n";
+          }
+          return move(Integer.parseInt(words[1]));
+        case "LOOK":
+          return game().playerLocationDetails();
+        case "PLAYER":
+          return game().playerDetails();
+        case "DIRECTIONS":
+          return game().possibleMovements();
+        case "MAP":
+          return game().displayDungeon();
+        case "HINT":
+          return hint();
+        case "VIEW":
+          if (words.length != 1 && words.length != 3) {
+            return "ERROR Usage: VIEW [rows cols]";
+          }
+          return view(words);
+        default:
+          return "ERROR Unknown command " + words[0];
+      }
+    } catch (IllegalArgumentException | IllegalStateException e) {
+      return "ERROR " + e.getMessage();
+    }
+  }
+
+  private String newGame(String[] words) {
+    if (words.length != 6 && words.length != 7) {
+      return "ERROR Usage: NEW rows cols wrapping interconnectivity treasure [seed]";
+    }
+    int rows = Integer.parseInt(words[1]);
+    int cols = Integer.parseInt(words[2]);
+    int interconnectivity = Integer.parseInt(words[4]);
+    int treasure = Integer.parseInt(words[5]);
+    if (rows < 5 || rows > 100 || cols < 5 || cols > 100
+        || !(words[3].equals("true") || words[3].equals("false"))) {
+      throw new IllegalArgumentException("Invalid agruments please enter the correct inputs");
+    }
+    long seed = words.length == 7 ? Long.parseLong(words[6])
+        : ThreadLocalRandom.current().nextLong();
+    IDungeon d = this.cache.get(new DungeonKey(rows, cols, Boolean.parseBoolean(words[3]),
+        interconnectivity, treasure, seed));
+    String start = d.setPlayerStartAndEnd();
+    this.dungeon = d;
+    this.viewport = null;
+    return "SEED " + seed + "\n" + start + d.possibleMovements();
+  }
+
+  private String move(int move) {
+    IDungeon d = game();
+    StringBuilder sb = new StringBuilder(d.playerMovement(move));
+    if (!d.hasEnded()) {
+      sb.append(d.gameEnded());
+      this.dungeon = null;
+      this.viewport = null;
+    } else {
+      sb.append(d.possibleMovements());
+    }
+    return sb.toString();
+  }
+
+  private String hint() {
+    IDungeon d = game();
+    Directions direction = d.hint();
+    int distance = d.distanceToExit();
+    return "HINT " + (direction == null ? "none" : direction) + " "
+        + (distance == DistanceEngine.UNREACHABLE ? "unreachable" : distance);
+  }
+
+  private String view(String[] words) {
+    IDungeon d = game();
+    if (words.length == 3) {
+      int rows = Integer.parseInt(words[1]);
+      int cols = Integer.parseInt(words[2]);
+      if (rows < 1 || rows > MAX_VIEW || cols < 1 || cols > MAX_VIEW) {
+        throw new IllegalArgumentException("A view has 1 to " + MAX_VIEW + " rows and columns");
+      }
+      this.viewport = d.viewport(rows, cols);
+    } else if (this.viewport == null) {
+      this.viewport = d.viewport(DEFAULT_VIEW_ROWS, DEFAULT_VIEW_COLS);
+    }
+    StringBuilder lines = new StringBuilder();
+    try {
+      int changed = this.viewport.update(lines);
+      return "VIEW " + changed + "\n" + lines;
+    } catch (IOException e) {
+      // A string builder never fails.
+      throw new UncheckedIOException(e);
+    }
+  }
+
+  private IDungeon game() {
+    if (this.dungeon == null) {
+      throw new IllegalStateException("No game. Start one with NEW");
+    }
+    return this.dungeon;
+  }
+
+  private static void reply(Writer out, String text) throws IOException {
+    out.write(text);
+    if (!text.endsWith("\n")) {
+      out.write('\n');
+    }
+    out.write(END);
+    out.write('\n');
+    out.flush();
+  }
+
+  private synchronized boolean begin() {
+    this.busy = !this.closing;
+    return this.busy;
+  }
+
+  private synchronized boolean end() {
+    this.busy = false;
+    return !this.closing;
+  }
+
+  /**
+   * Asks the session to stop. An idle session is closed right away, a session that is
+   * running a command answers it first.
+   */
+  synchronized void shutdown() {
+    this.closing = true;
+    if (!this.busy) {
+      close();
+    }
+  }
+
+  @Override
+  public void close() {
+    try {
+      this.socket.close();
+    } catch (IOException e) {
+      // Nothing left to do with a broken connection.
+    }
+  }
+}
@@ -0,0 +1,160 @@
+package dungeon;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Checks that {@link DungeonCache} builds a dungeon once for requests that arrive together,
+ * drops the least recently used dungeons to stay within its budget and counts both.
+ *
+ * @author anush
+ *
+ */
+class DungeonCacheTest {
+
+  private static final int BYTES = DungeonFormat.HEADER_BYTES + 5 * 6;
+
+  @Test
+  void requestsForTheSameDungeonAreBuiltOnce() throws Exception {
+    int threads = 8;
+    CountDownLatch release = new CountDownLatch(1);
+    AtomicInteger builds = new AtomicInteger();
+    DungeonCache cache = new DungeonCache(1 << 20, key -> {
+      builds.incrementAndGet();
+      try {
+        release.await();
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+      }
+      return dungeon(key);
+    });
+
+    DungeonKey key = key(1);
+    ExecutorService executor = Executors.newFixedThreadPool(threads);
+    try {
+      List<Future<IDungeon>> views = new ArrayList<>();
+      for (int i = 0; i < threads; i++) {
+        views.add(executor.submit(() -> cache.get(key)));
+      }
+      long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+      while (cache.getMisses() + cache.getCoalesced() < threads
+          && System.nanoTime() < deadline) {
+        Thread.sleep(1);
+      }
+      release.countDown();
+
+      String map = views.get(0).get(10, TimeUnit.SECONDS).displayDungeon();
+      for (Future<IDungeon> view : views) {
+        assertEquals(map, view.get(10, TimeUnit.SECONDS).displayDungeon());
+      }
+    } finally {
+      executor.shutdown();
+    }
+    assertEquals(1, builds.get());
+    assertEquals(1, cache.getMisses());
+    assertEquals(threads - 1, cache.getCoalesced());
+    assertEquals(0, cache.getHits());
+
+    cache.get(key);
+    assertEquals(1, cache.getHits());
+    assertEquals(1, builds.get());
+  }
+
+  @Test
+  void leastRecentlyUsedDungeonIsDropped() {
+    AtomicInteger builds = new AtomicInteger();
+    DungeonCache cache = new DungeonCache(2 * BYTES, counting(builds));
+
+    cache.get(key(1));
+    cache.get(key(2));
+    cache.get(key(1));
+    cache.get(key(3));
+    assertEquals(2, cache.size());
+    assertEquals(2 * BYTES, cache.getBytes());
+    assertEquals(1, cache.getEvictions());
+
+    cache.get(key(1));
+    cache.get(key(3));
+    assertEquals(3, builds.get());
+    cache.get(key(2));
+    assertEquals(4, builds.get());
+    assertEquals(2, cache.getEvictions());
+
+    assertEquals(3, cache.getHits());
+    assertEquals(4, cache.getMisses());
+    assertEquals(0, cache.getCoalesced());
+  }
+
+  @Test
+  void dungeonOverTheBudgetIsNotKept() {
+    AtomicInteger builds = new AtomicInteger();
+    DungeonCache cache = new DungeonCache(BYTES - 1, counting(builds));
+    cache.get(key(1));
+    cache.get(key(1));
+    assertEquals(2, builds.get());
+    assertEquals(0, cache.size());
+    assertEquals(0, cache.getBytes());
+    assertEquals(0, cache.getEvictions());
+  }
+
+  @Test
+  void everyRequestGetsItsOwnGame() {
+    DungeonCache cache = new DungeonCache(1 << 20);
+    IDungeon first = cache.get(key(4));
+    IDungeon second = cache.get(key(4));
+    assertNotSame(first, second);
+    first.setPlayerStartAndEnd();
+    second.setPlayerStartAndEnd();
+
+    int start = second.getPlayer().getCurrent().getNid();
+    first.playerMovement(1);
+    assertNotSame(first.getPlayer(), second.getPlayer());
+    assertEquals(start, second.getPlayer().getCurrent().getNid());
+  }
+
+  @Test
+  void failedBuildIsNotKept() {
+    AtomicInteger builds = new AtomicInteger();
+    DungeonCache cache = new DungeonCache(1 << 20, key -> {
+      if (builds.incrementAndGet() == 1) {
+        throw new IllegalStateException("Broken factory");
+      }
+      return dungeon(key);
+    });
+    assertThrows(IllegalStateException.class, () -> cache.get(key(5)));
+    assertEquals(0, cache.size());
+    assertTrue(cache.get(key(5)).displayDungeon().length() > 0);
+    assertEquals(2, builds.get());
+    assertEquals(2, cache.getMisses());
+  }
+
+  private static DungeonKey key(long seed) {
+    return new DungeonKey(5, 6, seed % 2 == 0, 2, 30, seed);
+  }
+
+  private static IDungeon dungeon(DungeonKey key) {
+    return new Dungeon(key.getRows(), key.getCols(), key.getIsWrapping(),
+        key.getInterconnectivity(), key.getPercentageOfTreasure(),
+        new SeededRandom(key.getSeed()), StartEndSelection.SAMPLED);
+  }
+
+  private static Function<DungeonKey, IDungeon> counting(AtomicInteger builds) {
+    return key -> {
+      builds.incrementAndGet();
+      return dungeon(key);
+    };
+  }
+}
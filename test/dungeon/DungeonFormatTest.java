@@ -0,0 +1,120 @@
+package dungeon;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+/**
+ * Writes built dungeons in {@link DungeonFormat} and reads them back, from memory and from a
+ * mapped file, checking that nothing of the dungeon is lost on the way.
+ *
+ * @author anush
+ *
+ */
+class DungeonFormatTest {
+
+  @TempDir
+  Path directory;
+
+  @Test
+  void topologyKeepsEveryNode() throws IOException {
+    for (int seed = 0; seed < 20; seed++) {
+      AbstractDungeon d = build(seed);
+      byte[] file = write(d);
+      assertEquals(DungeonFormat.HEADER_BYTES + d.getRows() * d.getCols(), file.length);
+
+      DungeonTopology topology = DungeonTopology.wrap(ByteBuffer.wrap(file));
+      assertEquals(d.getRows(), topology.getRows());
+      assertEquals(d.getCols(), topology.getCols());
+      assertEquals(d.getIsWrapping(), topology.getIsWrapping());
+      assertEquals(d.getStartEndPath().getStart().getNid(), topology.getStart());
+      assertEquals(d.getStartEndPath().getEnd().getNid(), topology.getEnd());
+      assertEquals(file.length, topology.getSize());
+      for (int nid = 0; nid < d.getRows() * d.getCols(); nid++) {
+        assertEquals(d.packedCell(nid), topology.cell(nid), "seed " + seed + " node " + nid);
+      }
+    }
+  }
+
+  @Test
+  void mappedFileReadsBackTheSameDungeon() throws IOException {
+    for (int seed = 0; seed < 10; seed++) {
+      AbstractDungeon d = build(seed);
+      byte[] file = write(d);
+      File saved = this.directory.resolve("dungeon" + seed + ".bin").toFile();
+      Files.write(saved.toPath(), file);
+
+      MappedDungeon mapped = MappedDungeon.open(saved, new SeededRandom(seed));
+      BatchGenerator.build(mapped, null);
+      assertEquals(d.getStartEndPath().getStart().getNid(),
+          mapped.getStartEndPath().getStart().getNid());
+      assertEquals(d.getStartEndPath().getEnd().getNid(),
+          mapped.getStartEndPath().getEnd().getNid());
+      assertEquals(d.displayDungeon(), mapped.displayDungeon(), "seed " + seed);
+      assertArrayEquals(file, write(mapped), "seed " + seed);
+    }
+  }
+
+  @Test
+  void dungeonWithoutStartAndEndKeepsNone() throws IOException {
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    new StreamingDungeonGenerator(6, 7, true, 3, 20, new SeededRandom(1)).generate(out);
+    DungeonTopology topology = DungeonTopology.wrap(ByteBuffer.wrap(out.toByteArray()));
+    assertEquals(DungeonFormat.NO_NODE, topology.getStart());
+    assertEquals(DungeonFormat.NO_NODE, topology.getEnd());
+  }
+
+  @Test
+  void brokenFilesAreRejected() throws IOException {
+    byte[] file = write(build(3));
+
+    byte[] magic = file.clone();
+    magic[0] = 'X';
+    assertThrows(IllegalArgumentException.class,
+        () -> DungeonTopology.wrap(ByteBuffer.wrap(magic)));
+
+    byte[] version = file.clone();
+    ByteBuffer.wrap(version).putInt(4, DungeonFormat.VERSION + 1);
+    assertThrows(IllegalArgumentException.class,
+        () -> DungeonTopology.wrap(ByteBuffer.wrap(version)));
+
+    byte[] truncated = new byte[file.length - 1];
+    System.arraycopy(file, 0, truncated, 0, truncated.length);
+    assertThrows(IllegalArgumentException.class,
+        () -> DungeonTopology.wrap(ByteBuffer.wrap(truncated)));
+
+    byte[] end = file.clone();
+    ByteBuffer.wrap(end).putInt(24, DungeonFormat.NO_NODE);
+    assertThrows(IllegalArgumentException.class,
+        () -> DungeonTopology.wrap(ByteBuffer.wrap(end)));
+
+    File saved = this.directory.resolve("truncated.bin").toFile();
+    Files.write(saved.toPath(), truncated);
+    assertThrows(IOException.class, () -> DungeonTopology.map(saved));
+  }
+
+  private static AbstractDungeon build(int seed) {
+    boolean wrapping = seed % 2 == 0;
+    AbstractDungeon d = seed % 3 == 0
+        ? new CompactDungeon(6 + seed, 7, wrapping, seed % 4, 40, new SeededRandom(seed))
+        : new Dungeon(6 + seed, 7, wrapping, seed % 4, 40, new SeededRandom(seed),
+            StartEndSelection.SAMPLED);
+    BatchGenerator.build(d, null);
+    return d;
+  }
+
+  private static byte[] write(IDungeon d) throws IOException {
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    d.writeTo(out);
+    return out.toByteArray();
+  }
+}
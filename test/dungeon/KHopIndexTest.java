@@ -0,0 +1,82 @@
+package dungeon;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.Random;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Checks the answers of {@link KHopIndex} against a breadth first search from every target,
+ * for several thresholds and with more targets than fit in one word of a bitset row.
+ *
+ * @author anush
+ *
+ */
+class KHopIndexTest {
+
+  @Test
+  void answersMatchBreadthFirstSearch() throws IOException {
+    for (int seed = 0; seed < 24; seed++) {
+      int rows = 4 + seed % 9;
+      int cols = 5 + (seed * 5) % 13;
+      ByteArrayOutputStream out = new ByteArrayOutputStream();
+      new StreamingDungeonGenerator(rows, cols, seed % 2 == 0, seed % 5, 0,
+          new SeededRandom(seed)).generate(out);
+      IGraph graph = DungeonTopology.wrap(ByteBuffer.wrap(out.toByteArray())).getGraph();
+      int vertices = graph.getVertices();
+
+      Random random = new Random(seed);
+      int[] targets = new int[1 + random.nextInt(vertices)];
+      for (int t = 0; t < targets.length; t++) {
+        targets[t] = random.nextInt(vertices);
+      }
+      DistanceEngine engine = new DistanceEngine(graph);
+      int[][] distance = new int[targets.length][];
+      for (int t = 0; t < targets.length; t++) {
+        distance[t] = engine.distancesFrom(targets[t]).clone();
+      }
+
+      for (int minDistance = 0; minDistance <= 7; minDistance++) {
+        KHopIndex index = new KHopIndex(graph, targets, minDistance);
+        assertEquals(minDistance, index.getMinDistance());
+        for (int t = 0; t < targets.length; t++) {
+          for (int v = 0; v < vertices; v++) {
+            assertEquals(distance[t][v] >= minDistance, index.isAtLeast(v, t),
+                "seed " + seed + " at least " + minDistance + " from " + v + " to "
+                    + targets[t]);
+          }
+        }
+      }
+    }
+  }
+
+  @Test
+  void refusesTablesOverTheLimit() {
+    assertTrue(KHopIndex.fits(1 << 15, 64 * 64));
+    assertFalse(KHopIndex.fits(1 << 15, 64 * 64 + 1));
+
+    IGraph huge = new IGraph() {
+      @Override
+      public int getVertices() {
+        return 1 << 22;
+      }
+
+      @Override
+      public int getDegree(int v) {
+        return 0;
+      }
+
+      @Override
+      public int getNeighbor(int v, int i) {
+        throw new IndexOutOfBoundsException();
+      }
+    };
+    assertThrows(IllegalArgumentException.class, () -> new KHopIndex(huge, new int[65], 5));
+  }
+}
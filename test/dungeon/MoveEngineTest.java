@@ -0,0 +1,148 @@
+package dungeon;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.util.List;
+import java.util.Random;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Walks the player of a dungeon and a {@link MoveEngine} of the same dungeon side by side and
+ * checks that they end on the same node with the same treasure, for moves by direction and
+ * for recorded inputs that include invalid ones.
+ *
+ * @author anush
+ *
+ */
+class MoveEngineTest {
+
+  private static final Treasure[] TREASURES = Treasure.values();
+
+  @Test
+  void moveBatchFollowsThePlayer() {
+    for (int seed = 0; seed < 20; seed++) {
+      AbstractDungeon d = build(seed);
+      MoveEngine engine = new MoveEngine(DungeonTopology.of(d));
+      IPlayer player = d.getPlayer();
+      assertEquals(player.getCurrent().getNid(), engine.getPosition());
+      long[] before = collected(player);
+      int pickupsBefore = player.getPickupCount();
+
+      Random random = new Random(seed);
+      byte[] moves = new byte[300];
+      for (int i = 0; i < moves.length; i++) {
+        List<Directions> offered = player.getCurrent().possibleDirections();
+        Directions direction = offered.get(random.nextInt(offered.size()));
+        assertEquals(PathFinder.step(player.getCurrent().getNid(), direction, d.getRows(),
+            d.getCols()), engine.neighbor(player.getCurrent().getNid(), direction));
+        moves[i] = (byte) direction.ordinal();
+        player.move(direction);
+      }
+
+      assertEquals(player.getCurrent().getNid(), engine.moveBatch(moves), "seed " + seed);
+      assertEquals(player.getCurrent().getNid(), engine.getPosition());
+      long[] after = collected(player);
+      for (Treasure t : TREASURES) {
+        assertEquals(after[t.ordinal()] - before[t.ordinal()], engine.getDelta(t),
+            "seed " + seed + " " + t);
+      }
+      assertEquals(player.getPickupCount() - pickupsBefore, engine.getPickups());
+    }
+  }
+
+  @Test
+  void stepBatchReadsInputsLikeStepPlayer() {
+    for (int seed = 0; seed < 20; seed++) {
+      AbstractDungeon d = build(seed);
+      MoveEngine shared = new MoveEngine(d);
+      MoveEngine engine = shared.fork();
+      IPlayer player = d.getPlayer();
+      long[] before = collected(player);
+      int pickupsBefore = player.getPickupCount();
+
+      Random random = new Random(seed);
+      byte[] inputs = new byte[400];
+      int rejected = 0;
+      for (int i = 0; i < inputs.length; i++) {
+        inputs[i] = (byte) random.nextInt(6);
+        if (!d.stepPlayer(inputs[i])) {
+          rejected++;
+        }
+      }
+
+      assertEquals(inputs.length, engine.stepBatch(inputs, 0, inputs.length,
+          MoveEngine.NO_PATH));
+      assertEquals(player.getCurrent().getNid(), engine.getPosition(), "seed " + seed);
+      assertEquals(rejected, engine.getRejected());
+      long[] after = collected(player);
+      for (Treasure t : TREASURES) {
+        assertEquals(after[t.ordinal()] - before[t.ordinal()], engine.getDelta(t),
+            "seed " + seed + " " + t);
+      }
+      assertEquals(player.getPickupCount() - pickupsBefore, engine.getPickups());
+      assertEquals(d.getStartEndPath().getStart().getNid(), shared.getPosition());
+    }
+  }
+
+  @Test
+  void stepBatchStopsAtTheExit() {
+    for (int seed = 0; seed < 20; seed++) {
+      AbstractDungeon d = build(seed);
+      MoveEngine engine = new MoveEngine(d);
+      int end = d.getStartEndPath().getEnd().getNid();
+
+      Random random = new Random(seed);
+      byte[] inputs = new byte[5000];
+      int read = 0;
+      for (int i = 0; i < inputs.length; i++) {
+        inputs[i] = (byte) (1 + random.nextInt(4));
+        if (d.getPlayer().getCurrent().getNid() != end) {
+          d.stepPlayer(inputs[i]);
+          read++;
+        }
+      }
+
+      assertEquals(read, engine.stepBatch(inputs, 0, inputs.length, end), "seed " + seed);
+      assertEquals(d.getPlayer().getCurrent().getNid(), engine.getPosition());
+    }
+  }
+
+  @Test
+  void invalidMoveLeavesTheEngineInPlace() {
+    AbstractDungeon d = build(1);
+    MoveEngine engine = new MoveEngine(DungeonTopology.of(d));
+    int start = engine.getPosition();
+    List<Directions> offered = d.getNode(start).possibleDirections();
+    // There and back along an open path, then a direction the start does not offer, or a
+    // byte that is no direction at all if it offers every one.
+    Directions there = offered.get(0);
+    byte closed = 4;
+    for (Directions direction : Directions.values()) {
+      if (!offered.contains(direction)) {
+        closed = (byte) direction.ordinal();
+      }
+    }
+    byte[] invalid = {(byte) there.ordinal(), (byte) (there.ordinal() ^ 1), closed};
+    assertThrows(IllegalArgumentException.class, () -> engine.moveBatch(invalid));
+    assertEquals(start, engine.getPosition());
+  }
+
+  private static AbstractDungeon build(int seed) {
+    boolean wrapping = seed % 2 == 0;
+    AbstractDungeon d = seed % 3 == 0
+        ? new CompactDungeon(6 + seed % 7, 8, wrapping, seed % 4, 40, new SeededRandom(seed))
+        : new Dungeon(6 + seed % 7, 8, wrapping, seed % 4, 40, new SeededRandom(seed),
+            StartEndSelection.SAMPLED);
+    BatchGenerator.build(d, null);
+    return d;
+  }
+
+  private static long[] collected(IPlayer player) {
+    long[] collected = new long[TREASURES.length];
+    for (Treasure t : TREASURES) {
+      collected[t.ordinal()] = player.getCollected(t);
+    }
+    return collected;
+  }
+}
@@ -0,0 +1,74 @@
+package dungeon;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.Random;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Checks the searches of {@link PathFinder} against a breadth first search, and that
+ * following the hints of a game leads to the exit in the promised number of moves.
+ *
+ * @author anush
+ *
+ */
+class PathFinderTest {
+
+  @Test
+  void shortestPathsMatchBreadthFirstSearch() {
+    for (int seed = 0; seed < 20; seed++) {
+      int rows = 15 + seed;
+      boolean wrapping = seed % 2 == 0;
+      Dungeon d = new Dungeon(rows, 20, wrapping, seed % 4, 40, new SeededRandom(seed),
+          StartEndSelection.SAMPLED);
+      BatchGenerator.build(d, null);
+      IGraph graph = d.getGraph();
+      PathFinder finder = new PathFinder(graph, rows, 20, wrapping);
+      DistanceEngine engine = new DistanceEngine(graph);
+
+      Random pairs = new Random(seed);
+      for (int i = 0; i < 200; i++) {
+        int from = pairs.nextInt(graph.getVertices());
+        int to = pairs.nextInt(graph.getVertices());
+        int expected = engine.distancesFrom(from)[to];
+        assertEquals(expected, finder.distance(from, to), "seed " + seed);
+
+        int[] path = finder.shortestPath(from, to);
+        assertEquals(expected + 1, path.length, "seed " + seed);
+        assertEquals(from, path[0]);
+        assertEquals(to, path[path.length - 1]);
+        for (int k = 1; k < path.length; k++) {
+          assertTrue(isNeighbor(graph, path[k - 1], path[k]), "seed " + seed);
+        }
+      }
+    }
+  }
+
+  @Test
+  void hintsReachTheExit() {
+    for (int seed = 0; seed < 20; seed++) {
+      Dungeon d = new Dungeon(15 + seed, 20, seed % 2 == 0, seed % 4, 40,
+          new SeededRandom(seed), StartEndSelection.SAMPLED);
+      BatchGenerator.build(d, null);
+      int distance = d.distanceToExit();
+      int moves = 0;
+      while (d.hasEnded() && moves <= distance) {
+        Directions hint = d.hint();
+        int move = d.getPlayer().getCurrent().possibleDirections().indexOf(hint) + 1;
+        assertTrue(d.stepPlayer(move), "seed " + seed);
+        moves++;
+      }
+      assertEquals(distance, moves, "seed " + seed);
+    }
+  }
+
+  private static boolean isNeighbor(IGraph graph, int v, int w) {
+    for (int i = 0; i < graph.getDegree(v); i++) {
+      if (graph.getNeighbor(v, i) == w) {
+        return true;
+      }
+    }
+    return false;
+  }
+}
@@ -0,0 +1,97 @@
+package dungeon;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Checks that {@link StreamingDungeonGenerator} writes a single spanning tree plus exactly
+ * the asked number of extra paths, on wrapping and non-wrapping grids.
+ *
+ * @author anush
+ *
+ */
+class StreamingDungeonGeneratorTest {
+
+  @Test
+  void treePlusInterconnectivityWithoutWrapping() throws IOException {
+    for (int seed = 0; seed < 60; seed++) {
+      int rows = 1 + seed % 13;
+      int cols = 1 + (seed * 7) % 17;
+      long leftOver = (long) rows * (cols - 1) + (long) (rows - 1) * cols
+          - (rows * cols - 1);
+      int interconnectivity = (int) Math.min(leftOver, seed % 6);
+      checkTree(rows, cols, false, interconnectivity, seed);
+    }
+  }
+
+  @Test
+  void treePlusInterconnectivityWithWrapping() throws IOException {
+    for (int seed = 0; seed < 60; seed++) {
+      int rows = 3 + seed % 13;
+      int cols = 3 + (seed * 7) % 17;
+      checkTree(rows, cols, true, seed % 6, seed);
+    }
+  }
+
+  @Test
+  void everyLeftOverPathCanBeOpened() throws IOException {
+    for (int seed = 0; seed < 10; seed++) {
+      int rows = 3 + seed;
+      int cols = 4 + seed % 3;
+      checkTree(rows, cols, false, (rows - 1) * (cols - 1), seed);
+      checkTree(rows, cols, true, rows * cols + 1, seed);
+    }
+  }
+
+  @Test
+  void tooManyExtraPathsAreRejected() {
+    assertThrows(IllegalArgumentException.class,
+        () -> new StreamingDungeonGenerator(4, 5, false, 13, 0, new SeededRandom(0)));
+    assertThrows(IllegalArgumentException.class,
+        () -> new StreamingDungeonGenerator(4, 5, true, 22, 0, new SeededRandom(0)));
+  }
+
+  private static void checkTree(int rows, int cols, boolean wrapping, int interconnectivity,
+      long seed) throws IOException {
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    new StreamingDungeonGenerator(rows, cols, wrapping, interconnectivity, 20,
+        new SeededRandom(seed)).generate(out);
+    DungeonTopology topology = DungeonTopology.wrap(ByteBuffer.wrap(out.toByteArray()));
+    assertEquals(rows, topology.getRows());
+    assertEquals(cols, topology.getCols());
+    assertEquals(wrapping, topology.getIsWrapping());
+
+    IGraph graph = topology.getGraph();
+    String game = rows + "x" + cols + " wrapping " + wrapping + " seed " + seed;
+    long degrees = 0;
+    for (int v = 0; v < graph.getVertices(); v++) {
+      degrees += graph.getDegree(v);
+      for (int i = 0; i < graph.getDegree(v); i++) {
+        int w = graph.getNeighbor(v, i);
+        assertTrue(hasNeighbor(graph, w, v), game + ": " + v + " to " + w + " is one way");
+      }
+    }
+    assertEquals(graph.getVertices() - 1 + interconnectivity, degrees / 2, game);
+
+    int[] distance = new DistanceEngine(graph).distancesFrom(0);
+    for (int v = 0; v < distance.length; v++) {
+      assertNotEquals(DistanceEngine.UNREACHABLE, distance[v], game + ": " + v);
+    }
+  }
+
+  private static boolean hasNeighbor(IGraph graph, int v, int w) {
+    for (int i = 0; i < graph.getDegree(v); i++) {
+      if (graph.getNeighbor(v, i) == w) {
+        return true;
+      }
+    }
+    return false;
+  }
+}
@@ -0,0 +1,103 @@
+package dungeon;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.concurrent.ForkJoinPool;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Checks that {@link TiledSpanningForest} builds a single spanning tree, and that the same
+ * seed chooses the same edges however many threads run the tiles.
+ *
+ * @author anush
+ *
+ */
+class TiledSpanningForestTest {
+
+  private static final int[] THREADS = {1, 2, 3, 8};
+
+  @Test
+  void sameSeedGivesSameEdgesOnAnyPool() {
+    for (int seed = 0; seed < 12; seed++) {
+      int rows = 20 + 7 * seed;
+      int cols = 90 - 5 * seed;
+      boolean wrapping = seed % 2 == 0;
+      checkPools(rows, cols, wrapping, 4 + seed % 5, seed);
+    }
+  }
+
+  @Test
+  void sameSeedGivesSameEdgesWithTheDefaultTileSize() {
+    checkPools(300, 300, false, TiledSpanningForest.DEFAULT_TILE_SIZE, 1);
+    checkPools(600, 300, true, TiledSpanningForest.DEFAULT_TILE_SIZE, 2);
+  }
+
+  private static void checkPools(int rows, int cols, boolean wrapping, int tileSize,
+      long seed) {
+    String game = rows + "x" + cols + " wrapping " + wrapping + " tiles " + tileSize
+        + " seed " + seed;
+    long[] first = null;
+    for (int threads : THREADS) {
+      ForkJoinPool pool = new ForkJoinPool(threads);
+      long[] openEdges = new long[(2 * rows * cols + 63) / 64];
+      try {
+        int tree = new TiledSpanningForest(rows, cols, wrapping, tileSize)
+            .build(pool, new SeededRandom(seed), openEdges);
+        assertEquals(rows * cols - 1, tree, game);
+      } finally {
+        pool.shutdown();
+      }
+      checkTree(rows, cols, wrapping, openEdges, game);
+      if (first == null) {
+        first = openEdges;
+      } else {
+        assertArrayEquals(first, openEdges, game + " on " + threads + " threads");
+      }
+    }
+  }
+
+  /**
+   * Checks that the open edges exist in the grid and join every node without a cycle.
+   */
+  private static void checkTree(int rows, int cols, boolean wrapping, long[] openEdges,
+      String game) {
+    int vertices = rows * cols;
+    int[] parent = new int[vertices];
+    for (int i = 0; i < vertices; i++) {
+      parent[i] = i;
+    }
+    int open = 0;
+    for (int edge = 0; edge < 2 * vertices; edge++) {
+      if ((openEdges[edge >>> 6] & 1L << edge) == 0) {
+        continue;
+      }
+      int from = edge >>> 1;
+      int row = from / cols;
+      int col = from % cols;
+      int to;
+      if ((edge & 1) == 0) {
+        assertTrue(wrapping || row + 1 < rows, game + ": edge " + edge + " leaves the grid");
+        to = (row + 1) % rows * cols + col;
+      } else {
+        assertTrue(wrapping || col + 1 < cols, game + ": edge " + edge + " leaves the grid");
+        to = row * cols + (col + 1) % cols;
+      }
+      int a = find(parent, from);
+      int b = find(parent, to);
+      assertTrue(a != b, game + ": edge " + edge + " closes a cycle");
+      parent[a] = b;
+      open++;
+    }
+    assertEquals(vertices - 1, open, game);
+  }
+
+  private static int find(int[] parent, int v) {
+    while (parent[v] != v) {
+      parent[v] = parent[parent[v]];
+      v = parent[v];
+    }
+    return v;
+  }
+}
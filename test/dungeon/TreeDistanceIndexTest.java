@@ -0,0 +1,64 @@
+package dungeon;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.Random;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Checks the distances of {@link TreeDistanceIndex} against a breadth first search from every
+ * node, on spanning trees and on dungeons with a few paths outside the tree.
+ *
+ * @author anush
+ *
+ */
+class TreeDistanceIndexTest {
+
+  @Test
+  void distancesMatchBreadthFirstSearch() throws IOException {
+    for (int seed = 0; seed < 40; seed++) {
+      int rows = 3 + seed % 9;
+      int cols = 3 + (seed * 7) % 11;
+      int interconnectivity = seed % 4 == 0 ? 0 : seed % 5;
+      ByteArrayOutputStream out = new ByteArrayOutputStream();
+      new StreamingDungeonGenerator(rows, cols, seed % 2 == 0, interconnectivity, 0,
+          new SeededRandom(seed)).generate(out);
+      IGraph graph = DungeonTopology.wrap(ByteBuffer.wrap(out.toByteArray())).getGraph();
+
+      TreeDistanceIndex index = new TreeDistanceIndex(graph, 100);
+      DistanceEngine engine = new DistanceEngine(graph);
+      for (int u = 0; u < graph.getVertices(); u++) {
+        int[] distance = engine.distancesFrom(u);
+        for (int v = 0; v < graph.getVertices(); v++) {
+          assertEquals(distance[v], index.distance(u, v),
+              "seed " + seed + " from " + u + " to " + v);
+        }
+      }
+    }
+  }
+
+  @Test
+  void exitDistanceUsesTheIndex() {
+    for (int seed = 0; seed < 20; seed++) {
+      boolean wrapping = seed % 2 == 0;
+      AbstractDungeon d = seed % 3 == 0
+          ? new CompactDungeon(8 + seed, 9, wrapping, seed % 4, 40, new SeededRandom(seed))
+          : new Dungeon(8 + seed, 9, wrapping, seed % 4, 40, new SeededRandom(seed),
+              StartEndSelection.SAMPLED);
+      BatchGenerator.build(d, null);
+      assertNotNull(d.getTreeIndex(), "seed " + seed);
+
+      int exit = d.getStartEndPath().getEnd().getNid();
+      int[] distance = new DistanceEngine(d.getGraph()).distancesFrom(exit);
+      Random nodes = new Random(seed);
+      for (int i = 0; i < 50; i++) {
+        int nid = nodes.nextInt(distance.length);
+        assertEquals(distance[nid], d.exitDistance(nid, exit), "seed " + seed + " node " + nid);
+      }
+    }
+  }
+}